@@ -0,0 +1,113 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 벤치마크용 스프링 컨텍스트 + 내장 H2 (메모리) + 데이터 적재
+ * 데이터 양은 -p members=... -p teams=... 로 바꿀 수 있음
+ */
+@State(Scope.Benchmark)
+public class MemberDataState {
+
+    @Param({"1000", "100000"})
+    public int members;
+
+    @Param({"10"})
+    public int teams;
+
+    public ConfigurableApplicationContext context;
+    public MemberJpaRepository memberJpaRepository;
+    public MemberRepository memberRepository;
+    public JPAQueryFactory queryFactory;
+    public MemberSearchCondition condition;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=bench",
+                        "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--decorator.datasource.p6spy.enable-logging=false",
+                        "--member.query-guard.max-rows=1000000");   //findAll 벤치마크가 전체를 읽도록
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        queryFactory = context.getBean(JPAQueryFactory.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        seed(context.getBean(JdbcTemplate.class));
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+    }
+
+    /**
+     * 벤치마크 대상과 상관없는 적재 비용을 빼기 위해 jdbc batch로 바로 넣음
+     */
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> teamRows = new ArrayList<>();
+        for (int i = 0; i < teams; i++) {
+            teamRows.add(new Object[]{(long) i + 1, "team" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into team (team_id, name) values (?, ?)", teamRows);
+
+        List<Object[]> memberRows = new ArrayList<>();
+        for (int i = 0; i < members; i++) {
+            memberRows.add(new Object[]{(long) i + 1, "member" + i, i % 100, (long) (i % teams) + 1});
+            if (memberRows.size() == 1000) {
+                insertMembers(jdbcTemplate, memberRows);
+                memberRows.clear();
+            }
+        }
+        insertMembers(jdbcTemplate, memberRows);
+    }
+
+    private void insertMembers(JdbcTemplate jdbcTemplate, List<Object[]> rows) {
+        jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", rows);
+    }
+
+    public <T> T readOnly(Supplier<T> query) {  //벤치마크 호출마다 새 영속성 컨텍스트에서 실행
+        return readOnlyTransaction.execute(status -> query.get());
+    }
+
+    /**
+     * 쓰기 트랜잭션 안에서 조회 (readOnly 트랜잭션은 세션 자체가 read-only / flush 안함이라 차이가 안보임), 끝나면 롤백
+     */
+    public <T> T readWrite(Supplier<T> query) {
+        return readWriteTransaction.execute(status -> {
+            status.setRollbackOnly();
+            return query.get();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * QuerydslBasicTest에서 쓰는 DTO 프로젝션 방식 4가지 비교 (setter / field / 생성자 / @QueryProjection)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProjectionBenchmark {
+
+    @Benchmark
+    public List<MemberDto> bean(MemberDataState data) {
+        return data.readOnly(() -> data.queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member).fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> fields(MemberDataState data) {
+        return data.readOnly(() -> data.queryFactory
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member).fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> constructor(MemberDataState data) {
+        return data.readOnly(() -> data.queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member).fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> queryProjection(MemberDataState data) {
+        return data.readOnly(() -> data.queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member).fetch());
+    }
+}
@@ -0,0 +1,76 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.entity.Member;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 쓰기 트랜잭션 안에서 전체 회원(members=100000)을 엔티티로 읽고 같은 트랜잭션에서 조회를 한번 더 할 때
+ * 힌트 없는 조회(스냅샷 + auto flush dirty check) vs MemberJpaRepository의 read-only 조회
+ * CPU는 벤치마크 결과, 할당량은 gc 프로파일러(gc.alloc.rate.norm), 영속성 컨텍스트가 붙잡고 있는 힙은 setup에서 출력
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadOnlyQueryBenchmark {
+
+    @Setup(Level.Trial)
+    public void printRetainedHeap(MemberDataState data) {
+        System.out.printf("%n[members=%d] 영속성 컨텍스트 유지 힙: managed=%dKB, readOnly=%dKB%n", data.members,
+                retainedHeap(data, ReadOnlyQueryBenchmark::loadManaged) / 1024,
+                retainedHeap(data, ReadOnlyQueryBenchmark::loadReadOnly) / 1024);
+    }
+
+    @Benchmark
+    public int managed(MemberDataState data) {
+        return data.readWrite(() -> loadManaged(data).size() + nextQuery(data));
+    }
+
+    @Benchmark
+    public int readOnly(MemberDataState data) {
+        return data.readWrite(() -> loadReadOnly(data).size() + nextQuery(data));
+    }
+
+    private static List<Member> loadManaged(MemberDataState data) {
+        return data.queryFactory.selectFrom(member).fetch();  //힌트 없이: 엔티티마다 스냅샷을 남김
+    }
+
+    private static List<Member> loadReadOnly(MemberDataState data) {
+        return data.memberJpaRepository.findAll_Querydsl();
+    }
+
+    /**
+     * 조회 전 auto flush가 영속성 컨텍스트의 엔티티를 전부 dirty check 함 (read-only 엔티티는 건너뜀)
+     */
+    private static int nextQuery(MemberDataState data) {
+        return data.queryFactory.selectFrom(member).where(member.username.eq("member7")).fetch().size();
+    }
+
+    private static long retainedHeap(MemberDataState data, Function<MemberDataState, List<Member>> load) {
+        return data.readWrite(() -> {
+            long before = usedHeapAfterGc();
+            List<Member> members = load.apply(data);
+            long retained = usedHeapAfterGc() - before;
+            return members.isEmpty() ? 0 : retained;  //GC 전에 members가 수거되지 않도록 참조 유지
+        });
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
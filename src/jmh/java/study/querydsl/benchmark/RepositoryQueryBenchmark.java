@@ -0,0 +1,49 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 결과를 내는 리포지토리 조회 방식끼리 비교
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RepositoryQueryBenchmark {
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder(MemberDataState data) {
+        return data.readOnly(() -> data.memberJpaRepository.searchByBuilder(data.condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByWhereParam(MemberDataState data) {
+        return data.readOnly(() -> data.memberJpaRepository.searchByWhereParam(data.condition));
+    }
+
+    @Benchmark
+    public List<Member> findByUsername_SpringData(MemberDataState data) {
+        return data.readOnly(() -> data.memberRepository.findByUsername("member7"));
+    }
+
+    @Benchmark
+    public List<Member> findByUsername_Querydsl(MemberDataState data) {
+        return data.readOnly(() -> data.memberJpaRepository.findByUsername_Querydsl("member7"));
+    }
+
+    @Benchmark
+    public List<Member> findAll_Jpql(MemberDataState data) {
+        return data.readOnly(() -> data.memberJpaRepository.findAll());
+    }
+
+    @Benchmark
+    public List<Member> findAll_Querydsl(MemberDataState data) {
+        return data.readOnly(() -> data.memberJpaRepository.findAll_Querydsl());
+    }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.support.ResponseMappers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 검색 응답(Page<MemberTeamDto>) 직렬화 비교: JSON / Smile / Smile(값 공유 끔)
+ * 팀 이름이 10개뿐이라 Smile의 shared string value가 teamName을 사전처럼 줄여주는지 크기도 같이 찍음
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializationBenchmark {
+
+    @Param({"20", "1000"})
+    int rows;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper smile = new ObjectMapper(ResponseMappers.smileFactory());
+    private final ObjectMapper smileWithoutSharedValues = new ObjectMapper(new SmileFactory());
+
+    private Page<MemberTeamDto> page;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<MemberTeamDto> content = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            content.add(new MemberTeamDto((long) i, "member" + i, i % 100, (long) (i % 10), "team" + (i % 10)));
+        }
+        page = new PageImpl<>(content, PageRequest.of(0, rows), rows * 10L);
+        System.out.printf("%n[rows=%d] json=%d bytes, smile=%d bytes, smile(no shared values)=%d bytes%n", rows,
+                json.writeValueAsBytes(page).length, smile.writeValueAsBytes(page).length,
+                smileWithoutSharedValues.writeValueAsBytes(page).length);
+    }
+
+    @Benchmark
+    public byte[] json() throws Exception {
+        return json.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] smile() throws Exception {
+        return smile.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] smileWithoutSharedValues() throws Exception {
+        return smileWithoutSharedValues.writeValueAsBytes(page);
+    }
+}
@@ -4,11 +4,13 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import javax.persistence.EntityManager;
 import javax.swing.text.html.parser.Entity;
 
 @SpringBootApplication
+@EnableScheduling  //replica 헬스 체크, IndexAdvisor 리포트
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,51 @@
+package study.querydsl.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 캐시 키로 쓰는 검색 조건 값 복사본 (MemberSearchCondition은 mutable이라 그대로 키로 쓰면 안됨)
+ * 정리된(normalized) 값으로 만들어서 " teamA"와 "teamA", ""와 null이 같은 키가 됨
+ */
+@EqualsAndHashCode
+@ToString
+final class ConditionKey {
+
+    private final String username;
+    private final String teamName;
+    private final Integer ageGoe;
+    private final Integer ageLoe;
+
+    private ConditionKey(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        this.username = username;
+        this.teamName = teamName;
+        this.ageGoe = ageGoe;
+        this.ageLoe = ageLoe;
+    }
+
+    /**
+     * 해시 입력용 정규 표현: 값마다 길이를 앞에 붙여서 구분자가 값 안에 있어도 다른 조건과 겹치지 않음
+     */
+    void appendTo(StringBuilder key) {
+        append(key, username);
+        append(key, teamName);
+        append(key, ageGoe);
+        append(key, ageLoe);
+    }
+
+    static void append(StringBuilder key, Object value) {
+        if (value == null) {
+            key.append("-;");
+            return;
+        }
+        String text = value.toString();
+        key.append(text.length()).append(':').append(text).append(';');
+    }
+
+    static ConditionKey of(MemberSearchCondition condition) {
+        MemberSearchCondition normalized = condition.normalized();
+        return new ConditionKey(normalized.getUsername(), normalized.getTeamName(),
+                normalized.getAgeGoe(), normalized.getAgeLoe());
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.support.MemberDataChangedEvent;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * 검색 조건별 전체 건수 캐시
+ * 많이 쓰이는 필터는 count 쿼리를 매번 다시 날리지 않도록 함. member/team이 바뀌면 전부 비움
+ */
+@Component
+public class MemberCountCache {
+
+    private final Cache<ConditionKey, Long> cache;
+
+    public MemberCountCache(@Value("${member.count-cache.maximum-size:1000}") long maximumSize,
+                            @Value("${member.count-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier countQuery) {
+        return cache.get(ConditionKey.of(condition), key -> countQuery.getAsLong());  //같은 키로 동시에 들어오면 count는 한번만 나감
+    }
+
+    @EventListener
+    public void onDataChanged(MemberDataChangedEvent event) {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,63 @@
+package study.querydsl.cache;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.support.MemberDataChangedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * member / team 데이터 버전: persist, update, bulk execute()가 나갈 때마다 올라감
+ * 검색 응답의 ETag = 버전 + SHA-256(엔드포인트 + 응답 포맷 + 검색 조건 + Pageable)
+ * (32비트 hashCode는 요청이 많으면 서로 다른 요청이 같은 ETag를 받아 엉뚱한 304가 나갈 수 있음)
+ * → 버전이 그대로면 같은 요청의 결과도 그대로이므로 DB를 거치지 않고 304로 응답할 수 있음
+ */
+@Component
+public class MemberDataVersion {
+
+    //재시작하면 0부터 다시 세는 대신 기동 시각부터 시작 (재시작 전에 받은 ETag와 겹치지 않도록)
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * 결과를 읽기 전에 만들어야 함 (읽는 도중 데이터가 바뀌면 다음 요청에서 다른 ETag가 나오도록)
+     */
+    public String etag(String endpoint, MediaType format, MemberSearchCondition condition, Pageable pageable) {
+        long current = version.get();
+        StringBuilder key = new StringBuilder();
+        ConditionKey.append(key, endpoint);
+        ConditionKey.append(key, format.toString());
+        ConditionKey.of(condition).appendTo(key);
+        ConditionKey.append(key, pageable.isPaged() ? pageable.getOffset() + "/" + pageable.getPageSize() : null);
+        ConditionKey.append(key, pageable.getSort().toString());
+        return "\"" + Long.toHexString(current) + "-" + sha256(key.toString()) + "\"";
+    }
+
+    private static String sha256(String key) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);  //모든 JVM이 지원해야 하는 알고리즘
+        }
+        StringBuilder hex = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) {  //앞 128비트만 씀
+            hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    @EventListener  //문장이 나갈 때 + 트랜잭션이 끝난 뒤 두번 올라감 (커밋 전에 만든 ETag도 커밋 후에는 무효)
+    public void onDataChanged(MemberDataChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
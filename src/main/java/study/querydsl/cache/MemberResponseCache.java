@@ -0,0 +1,87 @@
+package study.querydsl.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.support.MemberDataChangedEvent;
+import study.querydsl.support.ResponseMappers;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 회원 검색 응답을 직렬화된 바이트로 캐시 (엔드포인트 + 응답 포맷 + 검색 조건 + Pageable 기준)
+ * hit이면 SQL, DTO 생성, 직렬화를 모두 건너뛰고 바이트 배열을 그대로 응답에 씀
+ * 전체 바이트 크기로 제한하고 member/team이 바뀌면 전부 비움
+ */
+@Component
+public class MemberResponseCache {
+
+    private final Cache<ResponseKey, byte[]> cache;
+    private final ResponseMappers responseMappers;
+    private final AtomicLong generation = new AtomicLong();
+
+    public MemberResponseCache(ResponseMappers responseMappers,
+                               @Value("${member.response-cache.max-bytes:67108864}") long maxBytes,
+                               @Value("${member.response-cache.ttl-seconds:10}") long ttlSeconds) {
+        this.responseMappers = responseMappers;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((ResponseKey key, byte[] body) -> body.length)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public byte[] get(String endpoint, MediaType format, MemberSearchCondition condition, Pageable pageable, Supplier<?> loader) {
+        ResponseKey key = new ResponseKey(endpoint, format, ConditionKey.of(condition), pageable);
+        byte[] cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAt = generation.get();
+        byte[] body = serialize(responseMappers.mapper(format), loader.get());
+        if (generation.get() == loadedAt) {  //조회하는 사이에 데이터가 바뀌었으면 캐시에 넣지 않음
+            cache.put(key, body);
+        }
+        return body;
+    }
+
+    private static byte[] serialize(ObjectMapper mapper, Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @EventListener
+    public void onDataChanged(MemberDataChangedEvent event) {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @EqualsAndHashCode
+    private static final class ResponseKey {
+        private final String endpoint;
+        private final MediaType format;
+        private final ConditionKey condition;
+        private final Pageable pageable;
+
+        private ResponseKey(String endpoint, MediaType format, ConditionKey condition, Pageable pageable) {
+            this.endpoint = endpoint;
+            this.format = format;
+            this.condition = condition;
+            this.pageable = pageable;
+        }
+    }
+}
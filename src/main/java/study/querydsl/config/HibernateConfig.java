@@ -0,0 +1,33 @@
+package study.querydsl.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Configuration
+public class HibernateConfig {
+
+    /**
+     * hibernate에는 StatementInspector를 하나만 등록할 수 있어서 빈으로 등록된 inspector들을 순서대로 묶어서 넘김
+     * (inspector 빈은 EntityManagerFactory보다 먼저 만들어지므로 EntityManager를 주입받으면 안됨)
+     */
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(ObjectProvider<StatementInspector> inspectorProvider) {
+        return properties -> {
+            List<StatementInspector> inspectors = inspectorProvider.orderedStream().collect(Collectors.toList());
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+                String inspected = sql;
+                for (StatementInspector inspector : inspectors) {
+                    inspected = inspector.inspect(inspected);
+                }
+                return inspected;
+            });
+        };
+    }
+}
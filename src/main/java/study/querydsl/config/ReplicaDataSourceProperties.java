@@ -0,0 +1,30 @@
+package study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * member.datasource.replicas 아래에 읽기 전용 replica 접속 정보를 나열
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.datasource")
+public class ReplicaDataSourceProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+    private int validationTimeoutSeconds = 2;   //헬스 체크 시 Connection.isValid 대기 시간
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,117 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * replica DataSource 목록과 각 replica의 상태
+ * 살아있는 replica를 돌아가면서 내주고, 주기적으로 Connection.isValid로 상태를 갱신함
+ * 커넥션을 얻다가 실패한 replica는 다음 헬스 체크에서 살아날 때까지 제외
+ */
+@Slf4j
+public class ReplicaPool implements HealthIndicator {
+
+    private final List<Replica> replicas;
+    private final int validationTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaPool(Map<String, DataSource> dataSources, int validationTimeoutSeconds) {
+        this.replicas = dataSources.entrySet().stream()
+                .map(entry -> new Replica(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public Map<Object, Object> dataSources() {
+        Map<Object, Object> dataSources = new LinkedHashMap<>();
+        replicas.forEach(replica -> dataSources.put(replica.name, replica.dataSource));
+        return dataSources;
+    }
+
+    /**
+     * 살아있는 replica 이름 (round-robin), 전부 죽었으면 empty → primary로 보냄
+     */
+    public Optional<String> nextHealthy() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy.get()) {
+                return Optional.of(replica.name);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void markDown(String name, SQLException cause) {
+        replicas.stream()
+                .filter(replica -> replica.name.equals(name))
+                .filter(replica -> replica.healthy.compareAndSet(true, false))
+                .forEach(replica -> log.warn("replica {} 커넥션 실패, 헬스 체크에서 복구될 때까지 primary로 보냄", name, cause));
+    }
+
+    @Scheduled(fixedDelayString = "${member.datasource.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy = isValid(replica.dataSource);
+            if (replica.healthy.getAndSet(healthy) != healthy) {
+                log.info("replica {} 상태 변경: {}", replica.name, healthy ? "UP" : "DOWN");
+            }
+        }
+    }
+
+    private boolean isValid(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * replica가 죽어도 primary로 읽기가 계속되므로 서비스 상태는 UP, replica별 상태만 detail로 노출
+     */
+    @Override
+    public Health health() {
+        Map<String, String> status = new LinkedHashMap<>();
+        replicas.forEach(replica -> status.put(replica.name, replica.healthy.get() ? "UP" : "DOWN"));
+        return Health.up()
+                .withDetail("replicas", status)
+                .withDetail("fallbackToPrimary", nextHealthy().isEmpty())
+                .build();
+    }
+
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicBoolean healthy = new AtomicBoolean(true);
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * readOnly 트랜잭션은 replica로, 나머지(쓰기, 트랜잭션 밖)는 primary로 보냄
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 동기화되지 않으므로 LazyConnectionDataSourceProxy로 감싸서
+ * 실제 커넥션을 첫 SQL 시점에 얻도록 해야 함
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaPool replicaPool;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaPool replicaPool) {
+        this.replicaPool = replicaPool;
+        setDefaultTargetDataSource(primary);
+        setTargetDataSources(replicaPool.dataSources());
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        return replicaPool.nextHealthy().orElse(PRIMARY);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        DataSource replica = getResolvedDataSources().get(key);
+        if (replica == null) {  //primary
+            return getResolvedDefaultDataSource().getConnection();
+        }
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            replicaPool.markDown((String) key, e);
+            return getResolvedDefaultDataSource().getConnection();   //replica가 죽었으면 primary에서 읽음
+        }
+    }
+}
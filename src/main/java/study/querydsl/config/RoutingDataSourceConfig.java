@@ -0,0 +1,70 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * member.datasource.routing.enabled=true면 spring.datasource를 primary로, member.datasource.replicas를 읽기 전용으로 묶음
+ * 끄면 boot 기본 DataSource 하나로 동작
+ */
+@Configuration
+@ConditionalOnProperty(name = "member.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class RoutingDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaPool replicaPool(DataSourceProperties primary, ReplicaDataSourceProperties properties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaDataSourceProperties.Replica> configured = properties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReplicaDataSourceProperties.Replica replica = configured.get(i);
+            String name = replica.getName() != null ? replica.getName() : "replica-" + i;
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setDriverClassName(primary.determineDriverClassName());
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            dataSource.setInitializationFailTimeout(-1);   //기동 시 replica가 죽어 있어도 primary로 뜰 수 있게
+            replicas.put(name, dataSource);
+        }
+        return new ReplicaPool(replicas, properties.getValidationTimeoutSeconds());
+    }
+
+    /**
+     * JPA / JdbcTemplate이 쓰는 DataSource
+     * 기본 autoCommit / 격리수준을 지정해두면 프록시가 이를 알아내려고 미리 커넥션을 얻지 않음
+     */
+    @Bean
+    @Primary
+    public LazyConnectionDataSourceProxy dataSource(HikariDataSource primaryDataSource, ReplicaPool replicaPool) {
+        LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replicaPool));
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return dataSource;
+    }
+}
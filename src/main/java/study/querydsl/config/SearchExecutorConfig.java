@@ -0,0 +1,68 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class SearchExecutorConfig {
+
+    /**
+     * Executor 빈을 직접 등록하면 boot의 기본 applicationTaskExecutor가 빠지므로 (mvc 비동기 응답이 씀) 같은 설정으로 다시 등록
+     */
+    @Lazy
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * searchPageComplex의 카운트 쿼리를 컨텐츠 쿼리와 동시에 돌리는 용도
+     * 카운트 작업은 요청 스레드가 커넥션을 잡은 채로 기다리는 두번째 커넥션이라, 기다리는 요청 수가 커넥션 풀을 다 차지하면
+     * 카운트가 커넥션을 못 얻어서 서로 영원히 기다림(hikari 데드락)
+     * → 대기열 없이 pool-size개만 동시에 돌리고(기다리는 요청도 최대 pool-size개), pool-size는 커넥션 풀의 절반 이하로 제한
+     * 꽉 차면 거절 → searchPageComplex가 컨텐츠 쿼리 다음에 자기 트랜잭션에서 순차로 카운트
+     */
+    @Bean
+    public ThreadPoolTaskExecutor countQueryExecutor(@Value("${member.search.parallel-count.pool-size:4}") int poolSize,
+                                                     @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        Assert.isTrue(poolSize > 0 && poolSize * 2 <= connectionPoolSize,
+                "member.search.parallel-count.pool-size는 커넥션 풀(" + connectionPoolSize + ")의 절반 이하여야 합니다");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(0);  //SynchronousQueue: 바로 실행할 스레드가 없으면 거절
+        executor.setThreadNamePrefix("count-query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * 비동기 검색(searchAsync 등) 전용, 스레드마다 커넥션을 하나씩 잡으므로 pool-size는 커넥션 풀보다 작게
+     * (동기 API 요청 스레드 몫을 남김)
+     * 큐까지 차면 바로 거절(TaskRejectedException)해서 컨트롤러가 503으로 응답하게 함
+     */
+    @Bean
+    public ThreadPoolTaskExecutor searchQueryExecutor(@Value("${member.search.async.pool-size:4}") int poolSize,
+                                                      @Value("${member.search.async.queue-capacity:100}") int queueCapacity,
+                                                      @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        Assert.isTrue(poolSize > 0 && poolSize < connectionPoolSize,
+                "member.search.async.pool-size는 커넥션 풀(" + connectionPoolSize + ")보다 작아야 합니다");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,28 @@
+package study.querydsl.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.support.ResponseMappers;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ResponseMappers responseMappers;
+
+    public WebConfig(ResponseMappers responseMappers) {
+        this.responseMappers = responseMappers;
+    }
+
+    /**
+     * 객체를 그대로 반환하는 엔드포인트(비동기, /v4, /v5)도 Accept: application/x-jackson-smile이면 Smile로 씀
+     * 맨 뒤에 붙여서 Accept가 없거나 * / *이면 지금처럼 JSON 컨버터가 먼저 선택됨
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2SmileHttpMessageConverter(responseMappers.mapper(ResponseMappers.SMILE)));
+    }
+}
@@ -3,15 +3,44 @@ package study.querydsl.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.cache.MemberDataVersion;
+import study.querydsl.cache.MemberResponseCache;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberImportRecord;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.QueryLimitExceededException;
+import study.querydsl.service.MemberExportService;
+import study.querydsl.support.ResponseMappers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
@@ -19,20 +48,136 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberExportService memberExportService;
+    private final MemberResponseCache memberResponseCache;
+    private final MemberDataVersion memberDataVersion;
+    private final ResponseMappers responseMappers;
 
-    @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
-        return memberJpaRepository.searchMemberByWhereParam(condition);   //컨디션만 주더라도 where 자동 부여
+    @GetMapping(value = "/v1/members", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseMappers.SMILE_VALUE})
+    public ResponseEntity<byte[]> searchMemberV1(MemberSearchCondition condition,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                 WebRequest request){
+        MediaType format = responseMappers.negotiate(accept);   //서비스 간 호출은 Accept: application/x-jackson-smile
+        if (request.checkNotModified(memberDataVersion.etag("v1", format, condition, Pageable.unpaged()))) {
+            return null;   //마지막 조회 이후 데이터가 안 바뀌었으면 DB를 거치지 않고 304
+        }
+        return body(format, memberResponseCache.get("v1", format, condition, Pageable.unpaged(),
+                () -> memberJpaRepository.searchMemberByWhereParam(condition)));   //컨디션만 주더라도 where 자동 부여
     }
 
-    @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
-        return memberRepository.searchPageSimple(condition, pageable);   //컨디션만 주더라도 where 자동 부여
+    @GetMapping("/v1/members/columns")
+    public MemberColumns searchMemberColumns(MemberSearchCondition condition){
+        return memberRepository.searchColumns(condition);   //행 대신 컬럼 배열로 (id, age, teamId + 팀 이름 사전)
     }
 
-    @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
-        return memberRepository.searchPageComplex(condition, pageable);   //컨디션만 주더라도 where 자동 부여
+    @GetMapping(value = "/v1/members/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody exportMemberV1(MemberSearchCondition condition){
+        return out -> memberExportService.exportNdjson(condition, out);   //결과를 모으지 않고 읽는 대로 응답에 씀
+    }
+
+    @GetMapping(value = "/v1/members/export", produces = ResponseMappers.SMILE_VALUE)
+    public StreamingResponseBody exportMemberV1Smile(MemberSearchCondition condition){
+        return out -> memberExportService.exportSmile(condition, out);
+    }
+
+    @GetMapping(value = "/v2/members", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseMappers.SMILE_VALUE})
+    public ResponseEntity<byte[]> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                 WebRequest request){
+        MediaType format = responseMappers.negotiate(accept);
+        if (request.checkNotModified(memberDataVersion.etag("v2", format, condition, pageable))) {
+            return null;   //마지막 조회 이후 데이터가 안 바뀌었으면 DB를 거치지 않고 304
+        }
+        return body(format, memberResponseCache.get("v2", format, condition, pageable,
+                () -> memberRepository.searchPageSimple(condition, pageable)));   //같은 조건 + 페이지면 직렬화된 응답을 그대로 재사용
+    }
+
+    @GetMapping(value = "/v3/members", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseMappers.SMILE_VALUE})
+    public ResponseEntity<byte[]> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                 WebRequest request){
+        MediaType format = responseMappers.negotiate(accept);
+        if (request.checkNotModified(memberDataVersion.etag("v3", format, condition, pageable))) {
+            return null;   //마지막 조회 이후 데이터가 안 바뀌었으면 DB를 거치지 않고 304
+        }
+        return body(format, memberResponseCache.get("v3", format, condition, pageable,
+                () -> memberRepository.searchPageComplex(condition, pageable)));
+    }
+
+    /**
+     * 비동기 버전: 쿼리는 검색용 executor에서 돌고 톰캣 스레드는 바로 반환됨
+     * 결과가 executor 스레드에서 나오므로 응답 캐시 / ETag는 쓰지 않고, 포맷은 메시지 컨버터(WebConfig)가 Accept로 고름
+     */
+    @GetMapping(value = "/v1/members/async", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseMappers.SMILE_VALUE})
+    public DeferredResult<ResponseEntity<List<MemberTeamDto>>> searchMemberV1Async(MemberSearchCondition condition){
+        return deferred(memberRepository.searchAsync(condition));
+    }
+
+    @GetMapping(value = "/v2/members/async", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseMappers.SMILE_VALUE})
+    public DeferredResult<ResponseEntity<Page<MemberTeamDto>>> searchMemberV2Async(MemberSearchCondition condition, Pageable pageable){
+        return deferred(memberRepository.searchPageSimpleAsync(condition, pageable));
+    }
+
+    @GetMapping(value = "/v3/members/async", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseMappers.SMILE_VALUE})
+    public DeferredResult<ResponseEntity<Page<MemberTeamDto>>> searchMemberV3Async(MemberSearchCondition condition, Pageable pageable){
+        return deferred(memberRepository.searchPageComplexAsync(condition, pageable));
+    }
+
+    @GetMapping(value = "/v4/members", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseMappers.SMILE_VALUE})
+    public ResponseEntity<MemberCursorPage> searchMemberV4(MemberSearchCondition condition,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "20") int size){
+        MemberCursor after = cursor != null ? MemberCursor.decode(cursor) : null;   //첫 페이지는 cursor 없이 요청
+        return negotiated(memberRepository.searchByCursor(condition, after, size));   //응답의 nextCursor를 다음 요청의 cursor로 넘김
+    }
+
+    @GetMapping(value = "/v5/members", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseMappers.SMILE_VALUE})
+    public ResponseEntity<Slice<MemberTeamDto>> searchMemberV5(MemberSearchCondition condition, Pageable pageable){
+        return negotiated(memberRepository.searchSlice(condition, pageable));   //total 없이 hasNext만 (카운트 쿼리 안나감)
+    }
+
+    @PostMapping(value = "/v1/members/import", consumes = "text/csv")
+    public long importMembers(InputStream body, @RequestParam(defaultValue = "true") boolean header) throws IOException {
+        try (Stream<MemberImportRecord> records = MemberImportRecord.fromCsv(new InputStreamReader(body, StandardCharsets.UTF_8), header)) {
+            return memberJpaRepository.bulkImport(records);   //요청 본문을 읽으면서 바로 적재 (전체를 메모리에 올리지 않음)
+        }
+    }
+
+    private static <T> DeferredResult<ResponseEntity<T>> deferred(CompletableFuture<T> future){
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>();
+        future.whenComplete((value, e) -> {
+            if (e != null) {
+                result.setErrorResult(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            } else {
+                result.setResult(negotiated(value));
+            }
+        });
+        return result;
+    }
+
+    private static <T> ResponseEntity<T> negotiated(T body){
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(body);   //JSON / Smile이 같은 URL이므로 캐시가 Accept별로 따로 두도록
+    }
+
+    private static ResponseEntity<byte[]> body(MediaType format, byte[] body){
+        return ResponseEntity.ok().contentType(format).varyBy(HttpHeaders.ACCEPT).body(body);   //ETag는 checkNotModified에서 붙음
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)  //검색용 executor가 꽉 참
+    public ResponseEntity<String> overloaded(RejectedExecutionException e){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("검색 요청이 많아 잠시 후 다시 시도해주세요");
+    }
+
+    @ExceptionHandler(QueryLimitExceededException.class)  //조건 없는 전체 조회 / max-rows 초과
+    public ResponseEntity<String> tooLarge(QueryLimitExceededException e){
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e){
+        return ResponseEntity.badRequest().body(e.getMessage());
     }
 
 
@@ -0,0 +1,21 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.statistics.TeamStatisticsStore;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamStatisticsStore teamStatisticsStore;
+
+    @GetMapping("/v1/teams/statistics")
+    public List<TeamStatisticsDto> teamStatistics(){
+        return teamStatisticsStore.statistics();   //회원 전체를 group by 하지 않고 미리 집계해둔 값을 그대로 내려줌
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * totalElements가 정확한 값인지 추정치인지 함께 내려주는 Page (json에 totalExact로 나감)
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    private final boolean totalExact;
+
+    public EstimatedPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 청크 단위 벌크 작업의 진행 상황 (청크가 끝날 때마다 누적값으로 새로 만들어짐)
+ */
+@Getter
+@ToString
+public class MemberBulkResult {
+
+    private final long affectedRows;
+    private final int chunks;
+    private final long elapsedMillis;
+
+    public MemberBulkResult(long affectedRows, int chunks, long elapsedMillis) {
+        this.affectedRows = affectedRows;
+        this.chunks = chunks;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis > 0 ? affectedRows * 1000.0 / elapsedMillis : affectedRows;
+    }
+}
@@ -0,0 +1,88 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 분석용 컬럼 단위 검색 결과
+ * 행마다 DTO / 박싱된 Long / 팀 이름 참조를 만들지 않고 primitive 배열에 담음
+ * 팀 이름은 사전(teamNames)에 한번씩만 두고 행에는 사전 번호(teamNameCodes)만 둠
+ */
+@Getter
+public class MemberColumns {
+
+    public static final long NO_TEAM = 0L;   //teamIds에서 팀이 없는 회원 (시퀀스는 1부터 시작)
+    public static final int NO_TEAM_NAME = -1;
+
+    private final int size;
+    private final long[] memberIds;
+    private final int[] ages;
+    private final long[] teamIds;
+    private final int[] teamNameCodes;
+    private final String[] teamNames;
+
+    private MemberColumns(int size, long[] memberIds, int[] ages, long[] teamIds, int[] teamNameCodes, String[] teamNames) {
+        this.size = size;
+        this.memberIds = memberIds;
+        this.ages = ages;
+        this.teamIds = teamIds;
+        this.teamNameCodes = teamNameCodes;
+        this.teamNames = teamNames;
+    }
+
+    public String teamName(int row) {
+        int code = teamNameCodes[row];
+        return code == NO_TEAM_NAME ? null : teamNames[code];
+    }
+
+    /**
+     * ResultSet을 읽으면서 한 행씩 추가, 배열은 모자라면 두배로 늘림
+     */
+    public static class Builder {
+
+        private int size;
+        private long[] memberIds;
+        private int[] ages;
+        private long[] teamIds;
+        private int[] teamNameCodes;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> teamNames = new ArrayList<>();
+
+        public Builder(int initialCapacity) {
+            int capacity = Math.max(initialCapacity, 16);
+            this.memberIds = new long[capacity];
+            this.ages = new int[capacity];
+            this.teamIds = new long[capacity];
+            this.teamNameCodes = new int[capacity];
+        }
+
+        public Builder add(long memberId, int age, long teamId, String teamName) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamIds = Arrays.copyOf(teamIds, capacity);
+                teamNameCodes = Arrays.copyOf(teamNameCodes, capacity);
+            }
+            memberIds[size] = memberId;
+            ages[size] = age;
+            teamIds[size] = teamId;
+            teamNameCodes[size] = teamName == null ? NO_TEAM_NAME : codes.computeIfAbsent(teamName, name -> {
+                teamNames.add(name);
+                return teamNames.size() - 1;
+            });
+            size++;
+            return this;
+        }
+
+        public MemberColumns build() {
+            return new MemberColumns(size, Arrays.copyOf(memberIds, size), Arrays.copyOf(ages, size),
+                    Arrays.copyOf(teamIds, size), Arrays.copyOf(teamNameCodes, size), teamNames.toArray(new String[0]));
+        }
+    }
+}
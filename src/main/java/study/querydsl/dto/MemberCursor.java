@@ -0,0 +1,54 @@
+package study.querydsl.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset 페이징용 커서 (마지막으로 읽은 회원의 정렬키 age + member_id)
+ * 클라이언트에게는 base64 문자열로만 노출
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class MemberCursor {
+
+    private final int age;
+    private final Long memberId;
+
+    public MemberCursor(int age, Long memberId) {
+        this.age = age;
+        this.memberId = memberId;
+    }
+
+    public static MemberCursor of(MemberTeamDto last) {
+        return new MemberCursor(last.getAge(), last.getMemberId());
+    }
+
+    public String encode() {
+        String raw = age + ":" + memberId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("잘못된 cursor 입니다: " + cursor, e);
+        }
+        int separator = raw.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("잘못된 cursor 입니다: " + cursor);
+        }
+        try {
+            return new MemberCursor(Integer.parseInt(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("잘못된 cursor 입니다: " + cursor, e);
+        }
+    }
+}
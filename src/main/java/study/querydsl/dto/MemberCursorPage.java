@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class MemberCursorPage {
+
+    private final List<MemberTeamDto> content;
+    private final String nextCursor;   //다음 페이지가 없으면 null
+    private final boolean hasNext;
+
+    public MemberCursorPage(List<MemberTeamDto> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+}
@@ -0,0 +1,92 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 대량 적재용 회원 한 건 (teamName이 없으면 팀 없이 저장)
+ */
+@Getter
+@ToString
+public class MemberImportRecord {
+
+    private static final CsvMapper CSV = CsvMapper.builder()
+            .enable(CsvParser.Feature.WRAP_AS_ARRAY)  //헤더 없이 한 행을 String[]로
+            .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+            .build();
+
+    private final String username;
+    private final int age;
+    private final String teamName;
+
+    public MemberImportRecord(String username, int age, String teamName) {
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+    }
+
+    /**
+     * username,age[,teamName] 형식의 csv (RFC 4180: 따옴표로 감싼 값 안의 쉼표 / 줄바꿈 / "" 허용)
+     * 읽는 대로 한 건씩 내보내므로 전체를 메모리에 올리지 않음, 다 쓰면 stream을 닫아야 함
+     */
+    public static Stream<MemberImportRecord> fromCsv(Reader reader, boolean header) throws IOException {
+        MappingIterator<String[]> rows = CSV.readerFor(String[].class)
+                .with(CsvSchema.emptySchema().withSkipFirstDataRow(header))
+                .readValues(reader);
+        Iterator<String[]> iterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return rows.hasNextValue();
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("csv 형식이 잘못되었습니다: " + e.getOriginalMessage(), e);
+                }
+            }
+
+            @Override
+            public String[] next() {
+                try {
+                    return rows.nextValue();
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("csv 형식이 잘못되었습니다: " + e.getOriginalMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .filter(columns -> !(columns.length == 1 && columns[0].isBlank()))  //공백뿐인 줄
+                .map(MemberImportRecord::fromColumns)
+                .onClose(() -> {
+                    try {
+                        rows.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    static MemberImportRecord fromColumns(String[] columns) {
+        if (columns.length < 2) {
+            throw new IllegalArgumentException("username,age[,teamName] 형식이어야 합니다: " + Arrays.toString(columns));
+        }
+        String teamName = columns.length > 2 && !columns[2].isBlank() ? columns[2].trim() : null;
+        try {
+            return new MemberImportRecord(columns[0].trim(), Integer.parseInt(columns[1].trim()), teamName);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("age가 숫자가 아닙니다: " + Arrays.toString(columns), e);
+        }
+    }
+}
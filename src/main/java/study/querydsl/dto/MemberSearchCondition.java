@@ -1,6 +1,7 @@
 package study.querydsl.dto;
 
 import lombok.Data;
+import org.springframework.util.StringUtils;
 
 @Data
 public class MemberSearchCondition {
@@ -11,4 +12,34 @@ public class MemberSearchCondition {
     private Integer ageGoe;
     private Integer ageLoe;
 
+    /**
+     * 같은 검색이 같은 쿼리 모양 / 캐시 키가 되도록 정리한 사본
+     * 문자열은 앞뒤 공백을 자르고, 비어 있으면 조건 없음(null)으로 봄
+     */
+    public MemberSearchCondition normalized() {
+        MemberSearchCondition normalized = new MemberSearchCondition();
+        normalized.setUsername(normalize(username));
+        normalized.setTeamName(normalize(teamName));
+        normalized.setAgeGoe(ageGoe);
+        normalized.setAgeLoe(ageLoe);
+        return normalized;
+    }
+
+    /**
+     * ageGoe == ageLoe면 나이 범위 대신 age = ? 하나로 검색
+     */
+    public boolean isAgeEq() {
+        return ageGoe != null && ageGoe.equals(ageLoe);
+    }
+
+    /**
+     * ageGoe > ageLoe처럼 결과가 있을 수 없는 조건 (SQL을 보내지 않고 빈 결과로 응답)
+     */
+    public boolean isUnsatisfiable() {
+        return ageGoe != null && ageLoe != null && ageGoe > ageLoe;
+    }
+
+    private static String normalize(String value) {
+        return StringUtils.hasText(value) ? value.trim() : null;
+    }
 }
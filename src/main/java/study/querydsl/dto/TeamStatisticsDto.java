@@ -0,0 +1,34 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+public class TeamStatisticsDto {
+
+    private final Long teamId;
+    private final String teamName;
+    private final long count;
+    private final long ageSum;
+    private final double ageAvg;
+    private final Integer ageMin;   //회원이 없으면 null
+    private final Integer ageMax;
+    private final Map<String, Long> ageHistogram;   //ex) "20-29" -> 3
+
+    public TeamStatisticsDto(Long teamId, String teamName, long count, long ageSum,
+                             Integer ageMin, Integer ageMax, Map<String, Long> ageHistogram) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.count = count;
+        this.ageSum = ageSum;
+        this.ageAvg = count > 0 ? (double) ageSum / count : 0;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+        this.ageHistogram = ageHistogram;
+    }
+
+    public TeamStatisticsDto withTeamName(String teamName) {
+        return new TeamStatisticsDto(teamId, teamName, count, ageSum, ageMin, ageMax, ageHistogram);
+    }
+}
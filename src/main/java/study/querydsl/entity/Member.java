@@ -8,9 +8,15 @@ import javax.persistence.*;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_team_id_age", columnList = "team_id, age"),  //팀 + 나이 범위 검색, team.members 지연로딩
+        @Index(name = "idx_member_age_id", columnList = "age, member_id")  //searchByCursor의 (age, member_id) 정렬 / 커서 조건
+})
 public class Member {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)  //insert마다 시퀀스를 호출하지 않도록 50개씩 미리 할당
     @Column(name = "member_id")
     private Long id;
     private String username;
@@ -0,0 +1,60 @@
+package study.querydsl.repository;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 키 목록 조회를 IN 절 몇 번으로 묶어서 실행
+ * 한 IN 절의 파라미터 수를 2의 거듭제곱(1, 2, 4, ... batchSize)으로 맞춰서 (남는 자리는 마지막 키를 반복)
+ * hibernate 쿼리 플랜 캐시에 키 개수마다 다른 SQL이 쌓이지 않게 함
+ */
+final class InListQueries {
+
+    private InListQueries() {
+    }
+
+    /**
+     * 결과는 입력한 키 순서대로 (키 하나에 여러 건이면 연달아, 없는 키는 건너뜀)
+     */
+    static <K, T> List<T> fetchInOrder(Collection<K> keys, int batchSize,
+                                       Function<List<K>, List<T>> query, Function<T, K> keyOf) {
+        Assert.isTrue(Integer.bitCount(batchSize) == 1, "batchSize는 2의 거듭제곱이어야 합니다");
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<K, List<T>> byKey = new HashMap<>();
+        for (List<K> batch : batches(keys, batchSize)) {
+            for (T row : query.apply(batch)) {
+                byKey.computeIfAbsent(keyOf.apply(row), key -> new ArrayList<>()).add(row);
+            }
+        }
+        List<T> results = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            results.addAll(byKey.getOrDefault(key, Collections.emptyList()));
+        }
+        return results;
+    }
+
+    static <K> List<List<K>> batches(Collection<K> keys, int batchSize) {
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<List<K>> batches = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += batchSize) {
+            List<K> batch = new ArrayList<>(distinct.subList(from, Math.min(from + batchSize, distinct.size())));
+            int padded = Integer.highestOneBit(batch.size()) == batch.size() ? batch.size() : Integer.highestOneBit(batch.size()) << 1;
+            K last = batch.get(batch.size() - 1);
+            while (batch.size() < padded) {
+                batch.add(last);
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
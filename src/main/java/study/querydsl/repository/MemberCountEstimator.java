@@ -0,0 +1,108 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 조건에 맞는 회원 수를 전체를 세지 않고 추정
+ * 전체 row 수(테이블 통계) x 표본에서 조건을 만족한 비율
+ * 표본은 member_id 범위를 windows개 구간으로 고르게 나눠서 뽑음 (pk 인덱스로 구간만 읽음)
+ * 전체 row 수는 H2의 information_schema.tables.row_count_estimate를 씀, 다른 DB로 바꾸면 tableRows()를 그 DB의 통계로 바꿔야 함
+ * (통계가 없어도 전체를 세지는 않고 id 범위로 추정)
+ */
+@Slf4j
+@Component
+public class MemberCountEstimator {
+
+    private final JPAQueryFactory queryFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final int sampleSize;
+    private final int windows;
+
+    public MemberCountEstimator(EntityManager em, JdbcTemplate jdbcTemplate,
+                                @Value("${member.search.approximate-count.sample-size:10000}") int sampleSize,
+                                @Value("${member.search.approximate-count.windows:4}") int windows) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.jdbcTemplate = jdbcTemplate;
+        this.sampleSize = sampleSize;
+        this.windows = windows;
+    }
+
+    public long estimate(Predicate where) {
+        NumberExpression<Long> minIdExpr = member.id.min();
+        NumberExpression<Long> maxIdExpr = member.id.max();
+        Tuple range = queryFactory.select(minIdExpr, maxIdExpr).from(member).fetchOne();
+        Long min = range.get(minIdExpr);
+        Long max = range.get(maxIdExpr);
+        if (min == null || max == null) {  //빈 테이블
+            return 0;
+        }
+        long minId = min;
+        long span = max - minId + 1;
+
+        long tableRows = tableRows(span);
+        if (where == null) {
+            return tableRows;
+        }
+        if (tableRows <= sampleSize) {  //표본보다 작은 테이블은 그냥 셈
+            return queryFactory.select(member.count()).from(member).leftJoin(member.team, team).where(where).fetchOne();
+        }
+
+        long windowSpan = Math.max(1, span * sampleSize / tableRows / windows);  //id가 대략 촘촘하다고 보고 표본 크기에 맞춤
+
+        BooleanExpression sample = null;
+        for (int i = 0; i < windows; i++) {
+            long from = minId + (span - windowSpan) * i / Math.max(windows - 1, 1);
+            BooleanExpression window = member.id.between(from, from + windowSpan - 1);
+            sample = sample == null ? window : sample.or(window);
+        }
+        NumberExpression<Long> total = member.count();
+        NumberExpression<Long> matched = new CaseBuilder().when(where).then(1L).otherwise(0L).sum();
+        Tuple counts = queryFactory.select(total, matched)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(sample)
+                .fetchOne();
+
+        long sampled = counts.get(total);
+        if (sampled == 0) {
+            return tableRows;
+        }
+        Long matchedRows = counts.get(matched);
+        return Math.round((double) tableRows * (matchedRows != null ? matchedRows : 0) / sampled);
+    }
+
+    /**
+     * H2 테이블 통계의 row 추정치
+     * 통계를 못 읽으면 id를 sample-size + 1건까지만 읽어보고, 그보다 많으면 id 범위(idSpan)를 row 수로 봄 (count(*)로 전체를 세지 않음)
+     */
+    private long tableRows(long idSpan) {
+        try {
+            List<Long> estimates = jdbcTemplate.queryForList(
+                    "select row_count_estimate from information_schema.tables where table_schema = schema() and table_name = 'MEMBER'",
+                    Long.class);
+            if (!estimates.isEmpty() && estimates.get(0) != null && estimates.get(0) > 0) {
+                return estimates.get(0);
+            }
+        } catch (DataAccessException e) {
+            log.debug("member 테이블 통계를 읽을 수 없어 id 범위로 추정: {}", e.getMessage());  //통계 컬럼이 없는 DB
+        }
+        int probed = queryFactory.select(member.id).from(member).limit(sampleSize + 1).fetch().size();
+        return probed <= sampleSize ? probed : idSpan;
+    }
+}
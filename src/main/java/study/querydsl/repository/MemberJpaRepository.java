@@ -3,17 +3,33 @@ package study.querydsl.repository;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberImportRecord;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
@@ -23,11 +39,29 @@ public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final TeamRepository teamRepository;
+    private final MemberSearchQueryCache searchQueryCache;
+    private final QueryGuard queryGuard;
+    private final TransactionTemplate chunkTransaction;
+    private final int importBatchSize;
+    private final int lookupBatchSize;
+    private final int readOnlyFetchSize;
 
-
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, TeamRepository teamRepository,
+                               MemberSearchQueryCache searchQueryCache, QueryGuard queryGuard,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${member.import.batch-size:1000}") int importBatchSize,
+                               @Value("${member.lookup.batch-size:256}") int lookupBatchSize,
+                               @Value("${member.read-only-query.fetch-size:1000}") int readOnlyFetchSize) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.teamRepository = teamRepository;
+        this.searchQueryCache = searchQueryCache;
+        this.queryGuard = queryGuard;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.importBatchSize = importBatchSize;
+        this.lookupBatchSize = lookupBatchSize;
+        this.readOnlyFetchSize = readOnlyFetchSize;
     }
 
 /*
@@ -43,30 +77,135 @@ public class MemberJpaRepository {
         em.persist(member);
     }
 
+    /**
+     * 대량 적재 / jdbc batch insert로 모아서 보내고 batch-size 마다 flush + clear 해서 영속성 컨텍스트가 커지지 않게 함
+     * 호출한 쪽에 트랜잭션이 없으면 batch-size건마다 커밋 (undo / 락이 전체 건수만큼 쌓이지 않음)
+     * 중간에 실패하면 그 청크만 롤백되고 앞 청크는 커밋된 채로 예외, 있으면 그 트랜잭션에 참여
+     * 팀은 처음 나온 이름만 TeamRepository(쿼리 캐시)로 찾고, 이후엔 이름 -> id만 들고 getReference로 연결
+     * → 팀 전체를 미리 읽지 않고, 같은 팀으로 반복 적재할 때는 팀 조회 SQL도 나가지 않음
+     * 같은 이름의 팀이 여럿이면 id가 가장 작은 팀에 넣음
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long bulkImport(Stream<MemberImportRecord> records){
+        Map<String, Long> teamIds = new HashMap<>();
+
+        long count = 0;
+        Iterator<MemberImportRecord> iterator = records.iterator();
+        List<MemberImportRecord> chunk = new ArrayList<>(importBatchSize);
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == importBatchSize || !iterator.hasNext()) {
+                importChunk(chunk, teamIds);
+                count += chunk.size();
+                chunk.clear();
+            }
+        }
+        return count;
+    }
+
+    private void importChunk(List<MemberImportRecord> chunk, Map<String, Long> teamIds) {
+        Map<String, Long> chunkTeamIds = new HashMap<>(teamIds);
+        chunkTransaction.executeWithoutResult(status -> {
+            for (MemberImportRecord record : chunk) {
+                Member newMember = new Member(record.getUsername(), record.getAge());
+                if (record.getTeamName() != null) {
+                    newMember.setTeam(teamReference(chunkTeamIds, record.getTeamName()));  //changeTeam은 team.members 지연로딩을 일으키므로 쓰지 않음
+                }
+                em.persist(newMember);
+            }
+            em.flush();
+            em.clear();
+        });
+        teamIds.putAll(chunkTeamIds);  //커밋된 청크에서 만든 팀만 다음 청크가 씀
+    }
+
+    private Team teamReference(Map<String, Long> teamIds, String teamName) {
+        Long teamId = teamIds.get(teamName);
+        if (teamId != null) {
+            return em.getReference(Team.class, teamId);
+        }
+        Team found = teamRepository.findFirstByNameOrderByIdAsc(teamName).orElse(null);
+        if (found != null) {
+            teamIds.put(teamName, found.getId());
+            return found;
+        }
+        Team newTeam = new Team(teamName);
+        em.persist(newTeam);  //시퀀스 전략이라 persist 시점에 id가 할당됨
+        teamIds.put(teamName, newTeam.getId());
+        return newTeam;
+    }
+
     public Optional<Member> findById(Long id){
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
     }
 
+    /**
+     * findById를 반복 호출하지 않고 IN 절로 묶어서 조회 (키 1000개면 lookup.batch-size 256 기준 4번)
+     * 결과는 입력한 id 순서대로, 없는 id는 빠짐
+     */
+    @Transactional(readOnly = true)
+    public List<Member> findByIds(Collection<Long> ids){
+        return InListQueries.fetchInOrder(ids, lookupBatchSize,
+                batch -> readOnly(queryFactory.selectFrom(member)).where(member.id.in(batch)).fetch(),
+                Member::getId);
+    }
+
+    /**
+     * findAll / findByUsername / findByIds 계열은 엔티티를 돌려주지만 호출하는 쪽에서 수정하지 않음
+     * → read-only로 읽어서 dirty checking용 스냅샷을 남기지 않음. 여기서 받은 엔티티를 수정해도 DB에 반영되지 않음
+     * (이미 영속성 컨텍스트에 있던 엔티티는 그대로 수정 가능한 상태로 돌려줌)
+     * 조회 전 auto flush는 따로 건드리지 않음: 읽기 전용 트랜잭션이면 spring이 세션을 FlushMode.MANUAL로 열어서 이미 생략되고,
+     * 쓰기 트랜잭션에 참여한 경우엔 flush 안된 persist / 변경이 조회 결과에 보여야 하므로 AUTO 그대로 둠
+     */
+    private <T> TypedQuery<T> readOnly(TypedQuery<T> query) {
+        return query.setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, readOnlyFetchSize);
+    }
+
+    private <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        return query.setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, readOnlyFetchSize);
+    }
+
+    /**
+     * 검색 API의 unbounded 정책과 별개로 max-rows건까지만 읽고, 넘으면 QueryLimitExceededException
+     */
+    @Transactional(readOnly = true)
     public List<Member> findAll(){
-        return em.createQuery("select m from Member m", Member.class).getResultList();
+        return queryGuard.fetchAll("findAll", limit -> readOnly(queryGuard.timeout(
+                em.createQuery("select m from Member m", Member.class))).setMaxResults(limit).getResultList());
     }
 
-    public List<Member> findAll_Querydsl(){  //queryDsl로 표현한 findAll
-        return queryFactory.selectFrom(member).fetch();
+    @Transactional(readOnly = true)
+    public List<Member> findAll_Querydsl(){  //queryDsl로 표현한 findAll (QueryGuard 적용도 같음)
+        return queryGuard.fetchAll("findAll_Querydsl", limit -> readOnly(queryGuard.timeout(queryFactory.selectFrom(member)))
+                .limit(limit).fetch());
     }
 
 
+    @Transactional(readOnly = true)
     public List<Member>  findByUsername(String username){
-        List<Member> username1 = em.createQuery("select m from Member m where m.username = :username", Member.class).setParameter("username", username).getResultList();
+        List<Member> username1 = queryGuard.fetch("findByUsername", MemberSearchShape.USERNAME, limit -> readOnly(queryGuard.timeout(
+                em.createQuery("select m from Member m where m.username = :username", Member.class)))
+                .setParameter("username", username).setMaxResults(limit).getResultList());
         return username1;
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username){  //queryDsl로 표현한 findAll
-        return queryFactory.selectFrom(member)
-                .where(member.username.eq(username)).fetch();
+        return queryGuard.fetch("findByUsername_Querydsl", MemberSearchShape.USERNAME, limit -> readOnly(queryGuard.timeout(queryFactory.selectFrom(member)))
+                .where(member.username.eq(username)).limit(limit).fetch());
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findByUsernames(Collection<String> usernames){  //같은 이름이 여러 명이면 연달아 들어감
+        return InListQueries.fetchInOrder(usernames, lookupBatchSize,
+                batch -> readOnly(queryFactory.selectFrom(member)).where(member.username.in(batch)).fetch(),
+                Member::getUsername);
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition)  //builder로 동적쿼리 생성
     {
         BooleanBuilder builder = new BooleanBuilder();
@@ -76,36 +215,56 @@ public class MemberJpaRepository {
         if (StringUtils.hasText(condition.getTeamName())) {  //null 말고도 ""가 오는 경우도 걸러넴
             builder.and(team.name.eq(condition.getTeamName()));
         }
-        if (condition.getAgeGoe()!= null) {
-            builder.and(member.age.goe(condition.getAgeGoe()));
-        }
+        if (condition.isAgeEq()) {  //where params 방식과 같은 모양이 되도록
+            builder.and(member.age.eq(condition.getAgeGoe()));
+        } else {
+            if (condition.getAgeGoe()!= null) {
+                builder.and(member.age.goe(condition.getAgeGoe()));
+            }
 
-        if (condition.getAgeLoe()!= null) {
-            builder.and(member.age.loe(condition.getAgeLoe()));
+            if (condition.getAgeLoe()!= null) {
+                builder.and(member.age.loe(condition.getAgeLoe()));
+            }
         }
 
-        return queryFactory.select(new QMemberTeamDto(
-                member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
+        return queryGuard.fetch("searchByBuilder", MemberSearchShape.of(condition),
+                limit -> queryGuard.timeout(queryFactory.select(new QMemberTeamDto(
+                member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName"))))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(builder)  //동적쿼리
-                .fetch();
+                .limit(limit)
+                .fetch());
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition) //where params로 동적쿼리 생성
     {
-        return queryFactory.select(new QMemberTeamDto(
-                member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
-                .from(member)
+        return queryGuard.fetch("searchByWhereParam", MemberSearchShape.of(condition),
+                limit -> searchQueryCache.fetch(condition, -1, limit));  //usernameEq/teamNameEq/ageGoe/ageLoe 조합별로 직렬화해둔 JPQL 재사용
+    }
+
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> searchMemberByWhereParam(MemberSearchCondition condition) //프로젝션 사항이 바뀌어도 그냥 selectFrom의 argument만 바꿔주면 됨
+    {
+        return queryGuard.fetch("searchMemberByWhereParam", MemberSearchShape.of(condition),   //조건 없이 /v1을 호출해도 테이블 전체를 읽지 않음
+                limit -> queryGuard.timeout(queryFactory.select(new QMemberTeamDto(
+            member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName"))))
+            .from(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))  //동적쿼리
-                .fetch();
+                        ageGoe(condition),
+                        ageLoe(condition))  //이 모두를 조립할 수도 있음
+                .limit(limit)
+                .fetch());
     }
 
-    public List<MemberTeamDto> searchMemberByWhereParam(MemberSearchCondition condition) //프로젝션 사항이 바뀌어도 그냥 selectFrom의 argument만 바꿔주면 됨
+    /**
+     * searchMemberByWhereParam과 같은 조회를 forward-only 커서로 한 건씩 읽음
+     * 결과 전체를 List로 올리지 않으므로 호출하는 쪽이 트랜잭션 안에서 스트림을 닫아줘야 함
+     */
+    public Stream<MemberTeamDto> streamMemberByWhereParam(MemberSearchCondition condition, int fetchSize)
     {
         return queryFactory.select(new QMemberTeamDto(
             member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
@@ -113,18 +272,23 @@ public class MemberJpaRepository {
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))  //이 모두를 조립할 수도 있음
-                .fetch();
+                        ageGoe(condition),
+                        ageLoe(condition))
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)  //jdbc 드라이버가 한번에 가져올 row 수
+                .setHint(QueryHints.HINT_READONLY, true)
+                .stream();
     }
 
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    private BooleanExpression ageLoe(MemberSearchCondition condition) {
+        return condition.getAgeLoe() != null && !condition.isAgeEq() ? member.age.loe(condition.getAgeLoe()) : null;
     }
 
-    private Predicate ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    private Predicate ageGoe(MemberSearchCondition condition) {  //ageGoe == ageLoe면 age = ? 하나로
+        if (condition.getAgeGoe() == null) {
+            return null;
+        }
+        return condition.isAgeEq() ? member.age.eq(condition.getAgeGoe()) : member.age.goe(condition.getAgeGoe());
     }
 
     private Predicate teamNameEq(String teamName) {
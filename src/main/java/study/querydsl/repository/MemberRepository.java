@@ -3,12 +3,9 @@ package study.querydsl.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import study.querydsl.entity.Member;
 
-import java.util.List;
-
 /**
  * spring data JPA를 이용하여 리포지토리 생성
+ * findByUsername은 fetch size를 설정(member.read-only-query.fetch-size)으로 주기 위해 MemberRepositoryImpl에 구현
  */
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {   //jpaRepository와 커스텀한 MemberRepositoryCustom을 모두 상속 받음
-
-    List<Member> findByUsername(String username);
 }
@@ -2,16 +2,38 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.MemberBulkResult;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface MemberRepositoryCustom {
 
+    List<Member> findByUsername(String username);  //read-only 엔티티 (MemberJpaRepository.findByUsername과 같음)
+
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    MemberColumns searchColumns(MemberSearchCondition condition);  //분석용: DTO 대신 primitive 배열
+    //검색용 executor에서 실행되는 비동기 버전 (호출한 스레드는 바로 반환됨)
+    CompletableFuture<List<MemberTeamDto>> searchAsync(MemberSearchCondition condition);
+    CompletableFuture<Page<MemberTeamDto>> searchPageSimpleAsync(MemberSearchCondition condition, Pageable pageable);
+    CompletableFuture<Page<MemberTeamDto>> searchPageComplexAsync(MemberSearchCondition condition, Pageable pageable);
+
+    MemberCursorPage searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size);
+
+    //조건에 맞는 회원을 id 순으로 chunkSize개씩 나눠서 처리, 청크가 끝날 때마다 progress에 누적 결과를 넘김
+    MemberBulkResult bulkAddAge(MemberSearchCondition condition, int amount, int chunkSize, Consumer<MemberBulkResult> progress);
+    MemberBulkResult bulkDelete(MemberSearchCondition condition, int chunkSize, Consumer<MemberBulkResult> progress);
 
 
 }
@@ -1,53 +1,140 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.ExpressionUtils;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.querydsl.cache.MemberCountCache;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.dto.MemberBulkResult;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+@Slf4j
 public class MemberRepositoryImpl implements  MemberRepositoryCustom{
 
+    static final String PARALLEL_COUNT_PARALLEL = "parallel";
+    static final String PARALLEL_COUNT_SKIPPED = "skipped";
+    static final String PARALLEL_COUNT_REJECTED = "rejected";
+
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-    public MemberRepositoryImpl(EntityManager em)
+    private final MemberCountCache countCache;
+    private final MemberSearchQueryCache searchQueryCache;
+    private final QueryGuard queryGuard;
+    private final Executor countQueryExecutor;
+    private final Executor searchQueryExecutor;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate chunkTransaction;
+    private final boolean parallelCount;
+    private final MemberCountEstimator countEstimator;
+    private final boolean approximateCount;
+    private final int exactCountThreshold;
+    private final int columnsFetchSize;
+    private final int readOnlyFetchSize;
+    public MemberRepositoryImpl(EntityManager em, MemberCountCache countCache, MemberSearchQueryCache searchQueryCache,
+                                QueryGuard queryGuard,
+                                @Qualifier("countQueryExecutor") Executor countQueryExecutor,
+                                @Qualifier("searchQueryExecutor") Executor searchQueryExecutor,
+                                MeterRegistry meterRegistry,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${member.search.parallel-count.enabled:false}") boolean parallelCount,
+                                MemberCountEstimator countEstimator,
+                                @Value("${member.search.approximate-count.enabled:false}") boolean approximateCount,
+                                @Value("${member.search.approximate-count.exact-threshold:10000}") int exactCountThreshold,
+                                @Value("${member.export.fetch-size:500}") int columnsFetchSize,
+                                @Value("${member.read-only-query.fetch-size:1000}") int readOnlyFetchSize)
     {
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.countCache = countCache;
+        this.searchQueryCache = searchQueryCache;
+        this.queryGuard = queryGuard;
+        this.countQueryExecutor = countQueryExecutor;
+        this.searchQueryExecutor = searchQueryExecutor;
+        this.meterRegistry = meterRegistry;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.parallelCount = parallelCount;
+        this.countEstimator = countEstimator;
+        this.approximateCount = approximateCount;
+        this.exactCountThreshold = exactCountThreshold;
+        this.columnsFetchSize = columnsFetchSize;
+        this.readOnlyFetchSize = readOnlyFetchSize;
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Member> findByUsername(String username) {
+        return queryGuard.fetch("findByUsername", MemberSearchShape.USERNAME, limit -> queryGuard.timeout(queryFactory.selectFrom(member))
+                .where(member.username.eq(username))
+                .setHint(QueryHints.HINT_READONLY, true)   //스냅샷 없이 읽음
+                .setHint(QueryHints.HINT_FETCH_SIZE, readOnlyFetchSize)
+                .limit(limit)
+                .fetch());
+    }
+
+    @Override
+    @Transactional(readOnly = true)  //검색만 replica로 라우팅, 쓰기 트랜잭션 안에서 부르면 그 트랜잭션(primary)에 참여
     public List<MemberTeamDto> search(MemberSearchCondition condition) //where params로 동적쿼리 생성
     {
-        return queryFactory.select(new QMemberTeamDto(
-                member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))  //동적쿼리
-                .fetch();
+        return queryGuard.fetch("search", MemberSearchShape.of(condition),
+                limit -> searchQueryCache.fetch(condition, -1, limit));  //조건 모양별로 미리 직렬화해둔 JPQL 재사용
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    private BooleanExpression ageLoe(MemberSearchCondition condition) {
+        return condition.getAgeLoe() != null && !condition.isAgeEq() ? member.age.loe(condition.getAgeLoe()) : null;
     }
 
-    private Predicate ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    private Predicate ageGoe(MemberSearchCondition condition) {  //ageGoe == ageLoe면 age = ? 하나로
+        if (condition.getAgeGoe() == null) {
+            return null;
+        }
+        return condition.isAgeEq() ? member.age.eq(condition.getAgeGoe()) : member.age.goe(condition.getAgeGoe());
     }
 
     private Predicate teamNameEq(String teamName) {
@@ -59,49 +146,330 @@ public class MemberRepositoryImpl implements  MemberRepositoryCustom{
     }
 
     @Override   //단순 페이징 처리
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory.select(new QMemberTeamDto(
-                member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
+        queryGuard.checkPageSize("searchPageSimple", MemberSearchShape.of(condition), pageable.getPageSize());
+        List<MemberTeamDto> results = queryGuard.timeout(queryFactory.select(new QMemberTeamDto(
+                member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName"))))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))  //동적쿼리
+                        ageGoe(condition),
+                        ageLoe(condition))  //동적쿼리
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
-                .fetchResults();
-        List<MemberTeamDto> results1 = results.getResults();
-        long total = results.getTotal();
+                .fetch();
+        long total = countCache.get(condition, () -> countQuery(condition).fetchCount());  //fetchResults() 대신 캐시된 카운트 사용
 
-        return new PageImpl<>(results1, pageable, total);
+        return new PageImpl<>(results, pageable, total);
 
     }
 
     @Override  //페이징인데, 컨텐트랑 카운트를 따로 / 카운트 쿼리를 먼저하고 컨텐츠를 가져오는 경우 , left join을 카운트 쿼리에는 나타내기 싫은 경우 쓰면 좋음
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> results = queryFactory.select(new QMemberTeamDto(
-                member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")))
+        if (pageable.isUnpaged()) {  //페이징 없이 부르면 목록 조회와 같은 상한을 적용
+            List<MemberTeamDto> results = search(condition);
+            return new PageImpl<>(results, pageable, results.size());
+        }
+        queryGuard.checkPageSize("searchPageComplex", MemberSearchShape.of(condition), pageable.getPageSize());
+        if (approximateCount && pageable.isPaged()) {
+            return searchPageComplexApproximate(condition, pageable);
+        }
+        if (parallelCount && pageable.isPaged()) {
+            return searchPageComplexParallel(condition, pageable);
+        }
+        List<MemberTeamDto> results = contentQuery(condition, pageable);
+
+//        long total = queryFactory.select(member).from(member).leftJoin(member.team, team)
+        JPAQuery<Member> countQuery = countQuery(condition);
+        //.fetchCount();
+
+        return PageableExecutionUtils.getPage(results, pageable, ()->countCache.get(condition, countQuery::fetchCount));  //카운트 쿼리의 최적화 (마지막 페이지나 한 페이지에 다 들어가는 경우는 카운터 쿼리 안들어감) + 자주 쓰는 조건은 캐시
+//        return new PageImpl<>(results, pageable, total);
+
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MemberColumns searchColumns(MemberSearchCondition condition) {
+        return queryGuard.fetch("searchColumns", MemberSearchShape.of(condition),
+                limit -> searchQueryCache.fetchColumns(condition, columnsFetchSize, limit), MemberColumns::getSize);
+    }
+
+    /**
+     * 화면에 "약 N건"만 보여주면 되는 경우: 결과가 exact-threshold건 이하일 때만 정확히 세고, 넘으면 표본으로 추정
+     * 정확히 셀지 판단할 때도 count 대신 id를 threshold + 1건까지만 읽으므로 결과가 아무리 많아도 비용이 일정함
+     */
+    private Page<MemberTeamDto> searchPageComplexApproximate(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> results = contentQuery(condition, pageable);
+        if (!results.isEmpty() && results.size() < pageable.getPageSize()) {  //마지막 페이지면 전체 건수가 바로 나옴
+            return new EstimatedPage<>(results, pageable, pageable.getOffset() + results.size(), true);
+        }
+
+        Predicate where = searchPredicate(condition);
+        int matched = queryGuard.timeout(queryFactory.select(member.id))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(where)
+                .limit(exactCountThreshold + 1)
+                .fetch()
+                .size();
+        if (matched <= exactCountThreshold) {
+            return new EstimatedPage<>(results, pageable, matched, true);
+        }
+        long estimated = Math.max(countEstimator.estimate(where), exactCountThreshold + 1L);  //최소한 threshold보다는 많음
+        return new EstimatedPage<>(results, pageable, estimated, false);
+    }
+
+    private Predicate searchPredicate(MemberSearchCondition condition) {
+        return ExpressionUtils.allOf(usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition),
+                ageLoe(condition));
+    }
+
+    /**
+     * 전체 건수가 필요 없는 무한 스크롤용: 카운트 쿼리 없이 pageSize + 1건을 읽어서 다음 페이지 여부만 판단
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(search(condition));
+        }
+        queryGuard.checkPageSize("searchSlice", MemberSearchShape.of(condition), pageable.getPageSize());
+        List<MemberTeamDto> results = queryGuard.timeout(queryFactory.select(new QMemberTeamDto(
+                member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName"))))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))  //동적쿼리
+                        ageGoe(condition),
+                        ageLoe(condition))
                 .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .limit(pageable.getPageSize() + 1)
                 .fetch();
 
-//        long total = queryFactory.select(member).from(member).leftJoin(member.team, team)
-        JPAQuery<Member> countQuery = queryFactory.select(member).from(member).leftJoin(member.team, team)   //카운트 쿼리의 최적화를 위해
+        boolean hasNext = results.size() > pageable.getPageSize();
+        List<MemberTeamDto> content = hasNext ? new ArrayList<>(results.subList(0, pageable.getPageSize())) : results;
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * 카운트 쿼리를 별도 읽기 전용 트랜잭션(다른 EntityManager, 다른 커넥션)에서 컨텐츠 쿼리와 동시에 실행
+     * 응답 시간이 두 쿼리의 합이 아니라 느린 쪽에 가까워짐
+     * 마지막 페이지 / 한 페이지짜리 결과면 카운트 결과는 쓰지 않고 버림 (응답에는 PageableExecutionUtils 최적화 그대로 적용)
+     * countQueryExecutor가 꽉 차서 거절되면 컨텐츠 쿼리 다음에 지금 트랜잭션에서 순차로 셈 (커넥션을 하나 더 잡지 않음)
+     * 결과는 member.search.parallel-count (result=parallel / skipped / rejected) 카운터로 남김
+     */
+    private Page<MemberTeamDto> searchPageComplexParallel(MemberSearchCondition condition, Pageable pageable) {
+        FutureTask<Long> total = new FutureTask<>(
+                () -> countCache.get(condition, () -> readOnlyTransaction.execute(status -> countQuery(condition).fetchCount())));
+        try {
+            countQueryExecutor.execute(total);
+        } catch (RejectedExecutionException e) {
+            parallelCount(PARALLEL_COUNT_REJECTED);
+            log.debug("[parallel-count] 카운트 executor가 꽉 차서 순차로 실행: {}", e.getMessage());
+            List<MemberTeamDto> results = contentQuery(condition, pageable);
+            return PageableExecutionUtils.getPage(results, pageable, () -> countCache.get(condition, countQuery(condition)::fetchCount));
+        }
+        boolean[] counted = {false};
+        try {
+            List<MemberTeamDto> results = contentQuery(condition, pageable);
+            return PageableExecutionUtils.getPage(results, pageable, () -> {
+                counted[0] = true;
+                return join(total);
+            });
+        } finally {
+            if (counted[0]) {
+                parallelCount(PARALLEL_COUNT_PARALLEL);
+            } else {  //카운트가 필요 없었으면(마지막 페이지 등) 결과를 기다리지 않고 취소
+                total.cancel(false);
+                parallelCount(PARALLEL_COUNT_SKIPPED);
+            }
+        }
+    }
+
+    private void parallelCount(String result) {
+        meterRegistry.counter("member.search.parallel-count", "result", result).increment();
+    }
+
+    private static long join(FutureTask<Long> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {  //카운트 쿼리에서 난 예외를 그대로 던짐
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private JPAQuery<Member> countQuery(MemberSearchCondition condition) {
+        return queryGuard.timeout(queryFactory.select(member)).from(member).leftJoin(member.team, team)   //카운트 쿼리의 최적화를 위해
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
-        //.fetchCount();
+                        ageGoe(condition),
+                        ageLoe(condition));
+    }
 
-        return PageableExecutionUtils.getPage(results, pageable, ()->countQuery.fetchCount());  //카운트 쿼리의 최적화 (마지막 페이지나 한 페이지에 다 들어가는 경우는 카운터 쿼리 안들어감)
-//        return new PageImpl<>(results, pageable, total);
+    /**
+     * 비동기 버전은 검색용 executor 스레드에서 각자 읽기 전용 트랜잭션을 열고 동기 버전을 그대로 실행
+     * executor가 꽉 차 있으면 호출한 스레드에서 바로 RejectedExecutionException
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)  //호출한 스레드에서는 트랜잭션을 열 필요가 없음
+    public CompletableFuture<List<MemberTeamDto>> searchAsync(MemberSearchCondition condition) {
+        return inSearchExecutor(() -> search(condition));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CompletableFuture<Page<MemberTeamDto>> searchPageSimpleAsync(MemberSearchCondition condition, Pageable pageable) {
+        return inSearchExecutor(() -> searchPageSimple(condition, pageable));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CompletableFuture<Page<MemberTeamDto>> searchPageComplexAsync(MemberSearchCondition condition, Pageable pageable) {
+        return inSearchExecutor(() -> searchPageComplex(condition, pageable));
+    }
+
+    private <T> CompletableFuture<T> inSearchExecutor(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> query.get()), searchQueryExecutor);
+    }
+
+    @Override  //keyset(seek) 페이징 / offset 없이 마지막으로 읽은 (age, member_id) 다음부터 읽으므로 깊은 페이지도 앞 페이지와 비용이 같음
+    @Transactional(readOnly = true)
+    public MemberCursorPage searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        Assert.isTrue(size > 0, "size는 1 이상이어야 합니다");
+        queryGuard.checkPageSize("searchByCursor", MemberSearchShape.of(condition), size);
+        List<MemberTeamDto> results = queryGuard.timeout(queryFactory.select(new QMemberTeamDto(
+                member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName"))))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition),
+                        ageLoe(condition),
+                        afterCursor(cursor))
+                .orderBy(member.age.asc(), member.id.asc())  //커서와 같은 정렬키를 써야함
+                .limit(size + 1)  //한 건 더 읽어서 다음 페이지가 있는지 판단
+                .fetch();
+
+        if (results.size() <= size) {
+            return new MemberCursorPage(results, null);
+        }
+        List<MemberTeamDto> content = new ArrayList<>(results.subList(0, size));
+        return new MemberCursorPage(content, MemberCursor.of(content.get(size - 1)).encode());
+    }
+
+    private BooleanExpression afterCursor(MemberCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return member.age.gt(cursor.getAge())
+                .or(member.age.eq(cursor.getAge()).and(member.id.gt(cursor.getMemberId())));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)  //호출한 쪽에 트랜잭션이 없으면 청크마다 커밋, 있으면 그 트랜잭션에 참여
+    public MemberBulkResult bulkAddAge(MemberSearchCondition condition, int amount, int chunkSize, Consumer<MemberBulkResult> progress) {
+        return inChunks("bulkAddAge", condition, chunkSize, progress, ids -> {
+            long updated = queryFactory.update(member)
+                    .set(member.age, member.age.add(amount))
+                    .where(member.id.in(ids))
+                    .execute();
+            syncPersistenceContext(ids, false);
+            return updated;
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public MemberBulkResult bulkDelete(MemberSearchCondition condition, int chunkSize, Consumer<MemberBulkResult> progress) {
+        return inChunks("bulkDelete", condition, chunkSize, progress, ids -> {
+            long deleted = queryFactory.delete(member)
+                    .where(member.id.in(ids))
+                    .execute();
+            syncPersistenceContext(ids, true);
+            return deleted;
+        });
+    }
+
+    /**
+     * 조건에 맞는 id를 id 순으로 chunkSize개씩 잘라서 청크마다 (id 조회 + 벌크 쿼리)를 한 트랜잭션으로 실행
+     * 한 문장이 테이블 전체를 잠그지 않고, 청크가 커밋될 때마다 락이 풀려서 다른 검색이 기다리지 않음
+     * 벌크 쿼리는 영속성 컨텍스트를 거치지 않으므로 이미 로딩된 엔티티만 골라서 refresh / detach 해줌
+     */
+    private MemberBulkResult inChunks(String operation, MemberSearchCondition condition, int chunkSize,
+                                      Consumer<MemberBulkResult> progress, ToLongFunction<List<Long>> bulkQuery) {
+        Assert.isTrue(chunkSize > 0, "chunkSize는 1 이상이어야 합니다");
+        long startedAt = System.nanoTime();
+        MemberBulkResult result = new MemberBulkResult(0, 0, 0);
+        Long lastId = null;
+        while (true) {
+            Long after = lastId;
+            Chunk chunk = chunkTransaction.execute(status -> {
+                List<Long> ids = queryFactory.select(member.id)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition),
+                                ageLoe(condition),
+                                after != null ? member.id.gt(after) : null)
+                        .orderBy(member.id.asc())
+                        .limit(chunkSize)
+                        .fetch();
+                return ids.isEmpty() ? null : new Chunk(ids.get(ids.size() - 1), bulkQuery.applyAsLong(ids));
+            });
+            if (chunk == null) {
+                break;
+            }
+            lastId = chunk.lastId;
+            result = new MemberBulkResult(result.getAffectedRows() + chunk.affectedRows, result.getChunks() + 1,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            if (progress != null) {
+                progress.accept(result);
+            }
+        }
+        log.info("{} 완료: {}건 / {}청크 / {}ms ({} rows/s)", operation, result.getAffectedRows(), result.getChunks(),
+                result.getElapsedMillis(), Math.round(result.getRowsPerSecond()));
+        return result;
+    }
+
+    /**
+     * 현재 영속성 컨텍스트에 올라와 있는 회원만 찾아서 (새로 로딩하지 않음) 수정이면 refresh, 삭제면 detach
+     */
+    private void syncPersistenceContext(List<Long> ids, boolean deleted) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        for (Long id : ids) {
+            Object managed = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+            if (managed == null) {
+                continue;
+            }
+            if (deleted) {
+                em.detach(managed);
+            } else {
+                em.refresh(managed);
+            }
+        }
+    }
+
+    private static final class Chunk {
+        private final long lastId;
+        private final long affectedRows;
 
+        private Chunk(long lastId, long affectedRows) {
+            this.lastId = lastId;
+            this.affectedRows = affectedRows;
+        }
     }
 }
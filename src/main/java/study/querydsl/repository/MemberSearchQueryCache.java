@@ -0,0 +1,248 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 쿼리를 모양(MemberSearchShape)별로 한번만 JPQL로 직렬화해두고 재사용
+ * 요청마다 querydsl 표현식 트리를 만들고 직렬화하는 비용이 없어지고,
+ * JPQL 문자열이 항상 같으므로 hibernate 쿼리 플랜 캐시도 모양별로 한 건씩만 사용함
+ */
+@Component
+public class MemberSearchQueryCache {
+
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.id.as("memberID"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName"));
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final QueryGuard queryGuard;
+    private final AtomicReferenceArray<CompiledQuery> compiled = new AtomicReferenceArray<>(MemberSearchShape.COUNT);
+    private final Counter hits;
+    private final Counter misses;
+
+    public MemberSearchQueryCache(EntityManager em, MeterRegistry meterRegistry, QueryGuard queryGuard) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.queryGuard = queryGuard;
+        this.hits = meterRegistry.counter("member.search.query.cache", "result", "hit");
+        this.misses = meterRegistry.counter("member.search.query.cache", "result", "miss");
+    }
+
+    public List<MemberTeamDto> fetch(MemberSearchCondition condition) {
+        return fetch(condition, -1, -1);
+    }
+
+    /**
+     * offset / limit이 음수면 페이징 없이 전부 조회
+     */
+    public List<MemberTeamDto> fetch(MemberSearchCondition condition, long offset, int limit) {
+        CompiledQuery compiledQuery = forExecution(MemberSearchShape.of(condition));
+        Query query = queryGuard.timeout(em.createQuery(compiledQuery.jpql));
+        List<Object> values = compiledQuery.bind(condition);
+        for (int i = 0; i < values.size(); i++) {
+            query.setParameter(i + 1, values.get(i));
+        }
+        if (offset >= 0) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit >= 0) {
+            query.setMaxResults(limit);
+        }
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> results = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            results.add(PROJECTION.newInstance((Object[]) row));
+        }
+        return results;
+    }
+
+    /**
+     * 컬럼 단위 결과: DTO 없이 JDBC ResultSet에서 바로 primitive 배열로 채움
+     * hibernate가 번역해둔 SQL을 그대로 쓰므로 select 컬럼 순서는 PROJECTION과 같음 (id, username, age, team id, team name)
+     * hibernate를 거치지 않으므로 StatementInspector(쿼리 수 집계, QueryBudget 등)에는 잡히지 않고 auto flush도 없음
+     * → 쓰기 트랜잭션 안에서는 직접 flush해서 아직 flush 안된 변경도 결과에 보이게 함 (읽기 전용 트랜잭션은 바뀐 게 없으므로 생략)
+     * maxRows가 음수면 제한 없음
+     */
+    public MemberColumns fetchColumns(MemberSearchCondition condition, int fetchSize, int maxRows) {
+        CompiledQuery compiledQuery = forExecution(MemberSearchShape.of(condition));
+        String sql = compiledQuery.sql();
+        List<Object> values = compiledQuery.bind(condition);
+        Session session = em.unwrap(Session.class);
+        if (em.isJoinedToTransaction() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            session.flush();
+        }
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setFetchSize(fetchSize);
+                statement.setQueryTimeout(queryGuard.getTimeoutSeconds());
+                if (maxRows >= 0) {
+                    statement.setMaxRows(maxRows);
+                }
+                for (int i = 0; i < values.size(); i++) {
+                    statement.setObject(i + 1, values.get(i));
+                }
+                MemberColumns.Builder columns = new MemberColumns.Builder(fetchSize);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        long teamId = rs.getLong(4);
+                        if (rs.wasNull()) {  //wasNull은 바로 앞에서 읽은 컬럼 기준
+                            teamId = MemberColumns.NO_TEAM;
+                        }
+                        columns.add(rs.getLong(1), rs.getInt(3), teamId, rs.getString(5));
+                    }
+                }
+                return columns.build();
+            }
+        });
+    }
+
+    /**
+     * 모양별 JPQL / hibernate가 번역한 SQL과 ?1부터의 바인딩 값 (IndexAdvisor가 실행계획을 볼 때도 사용)
+     * 쿼리를 실행하지 않으므로 hit / miss 집계에는 넣지 않음
+     */
+    public String jpql(int shape) {
+        return compiledQuery(shape).jpql;
+    }
+
+    public String sql(int shape) {
+        return compiledQuery(shape).sql();
+    }
+
+    public List<Object> parameters(int shape, MemberSearchCondition condition) {
+        return compiledQuery(shape).bind(condition);
+    }
+
+    /**
+     * 쿼리 실행 한 번에 한 번만 hit / miss를 셈
+     */
+    private CompiledQuery forExecution(int shape) {
+        if (compiled.get(shape) != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return compiledQuery(shape);
+    }
+
+    private CompiledQuery compiledQuery(int shape) {
+        CompiledQuery cached = compiled.get(shape);
+        if (cached != null) {
+            return cached;
+        }
+        CompiledQuery compiledQuery = compile(shape);
+        compiled.compareAndSet(shape, null, compiledQuery);  //동시에 컴파일해도 결과가 같으므로 먼저 들어간 쪽을 씀
+        return compiled.get(shape);
+    }
+
+    /**
+     * 자리표시 상수로 쿼리를 한번 만들어서 JPQLSerializer로 JPQL만 꺼냄 (JPAQuery.toString()의 출력 형식에 기대지 않음)
+     * querydsl은 상수를 where 절에 나온 순서대로 ?1, ?2 ... 로 직렬화하므로 parameters 순서가 곧 바인딩 순서
+     * (상수 값이 같으면 같은 파라미터로 합쳐지기 때문에 자리표시 값은 서로 달라야 함)
+     */
+    private CompiledQuery compile(int shape) {
+        List<Function<MemberSearchCondition, Object>> parameters = new ArrayList<>();
+        if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME)) {
+            parameters.add(MemberSearchCondition::getUsername);
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)) {
+            parameters.add(MemberSearchCondition::getTeamName);
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.AGE_GOE)) {
+            parameters.add(MemberSearchCondition::getAgeGoe);
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.AGE_LOE)) {
+            parameters.add(MemberSearchCondition::getAgeLoe);
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.AGE_EQ)) {
+            parameters.add(MemberSearchCondition::getAgeGoe);
+        }
+
+        JPAQuery<MemberTeamDto> query = queryFactory.select(PROJECTION).from(member);
+        if (MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)) {
+            query.join(member.team, team);  //team.name = ?이면 팀 없는 회원은 어차피 빠지므로 inner join → DB가 team(idx_team_name)부터 읽을 수 있음
+        } else {
+            query.leftJoin(member.team, team);
+        }
+        QueryMetadata metadata = query
+                .where(MemberSearchShape.has(shape, MemberSearchShape.USERNAME) ? member.username.eq("username") : null,
+                        MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME) ? team.name.eq("teamName") : null,
+                        MemberSearchShape.has(shape, MemberSearchShape.AGE_GOE) ? member.age.goe(0) : null,
+                        MemberSearchShape.has(shape, MemberSearchShape.AGE_LOE) ? member.age.loe(1) : null,
+                        MemberSearchShape.has(shape, MemberSearchShape.AGE_EQ) ? member.age.eq(2) : null)
+                .getMetadata();
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);  //JPAQueryFactory가 고르는 것과 같은 템플릿 (hibernate면 HQLTemplates)
+        serializer.serialize(metadata, false, null);
+        String jpql = serializer.toString();
+
+        for (int i = 1; i <= parameters.size(); i++) {
+            if (!jpql.contains("?" + i)) {
+                throw new IllegalStateException("예상한 파라미터 배치와 다른 JPQL 입니다: " + jpql);
+            }
+        }
+        return new CompiledQuery(jpql, parameters);
+    }
+
+    /**
+     * JPQL → SQL 번역은 JPA 표준 API가 없어서 hibernate 5 SPI(쿼리 플랜 캐시)를 씀, SPI 의존은 여기 한 곳뿐
+     * SQL이 필요한 fetchColumns / IndexAdvisor에서 처음 쓸 때만 번역하므로 일반 검색(fetch)은 영향 없음
+     */
+    private String translate(String jpql) {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getQueryPlanCache()
+                .getHQLQueryPlan(jpql, false, Collections.emptyMap())
+                .getSqlStrings()[0];
+    }
+
+    private final class CompiledQuery {
+        private final String jpql;
+        private final List<Function<MemberSearchCondition, Object>> parameters;  //?1부터 차례로 바인딩할 값
+        private volatile String sql;
+
+        private CompiledQuery(String jpql, List<Function<MemberSearchCondition, Object>> parameters) {
+            this.jpql = jpql;
+            this.parameters = parameters;
+        }
+
+        private String sql() {
+            String translated = sql;
+            if (translated == null) {  //동시에 번역해도 결과가 같음
+                translated = translate(jpql);
+                sql = translated;
+            }
+            return translated;
+        }
+
+        private List<Object> bind(MemberSearchCondition condition) {
+            List<Object> values = new ArrayList<>(parameters.size());
+            parameters.forEach(parameter -> values.add(parameter.apply(condition)));
+            return values;
+        }
+    }
+}
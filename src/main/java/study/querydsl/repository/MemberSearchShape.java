@@ -0,0 +1,74 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.StringJoiner;
+
+/**
+ * 검색 조건 중 어떤 항목이 들어왔는지를 비트로 표현 (값이 아니라 쿼리 모양만 봄)
+ * usernameEq / teamNameEq / ageGoe / ageLoe / ageEq 조합 (ageGoe == ageLoe면 AGE_EQ 하나로 봄)
+ * 정리(normalized)된 조건 기준이므로 빈 문자열은 조건 없음
+ */
+public final class MemberSearchShape {
+
+    public static final int USERNAME = 1;
+    public static final int TEAM_NAME = 1 << 1;
+    public static final int AGE_GOE = 1 << 2;
+    public static final int AGE_LOE = 1 << 3;
+    public static final int AGE_EQ = 1 << 4;
+
+    public static final int COUNT = 1 << 5;
+
+    private MemberSearchShape() {
+    }
+
+    public static int of(MemberSearchCondition condition) {
+        int shape = 0;
+        if (condition.getUsername() != null) {
+            shape |= USERNAME;
+        }
+        if (condition.getTeamName() != null) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.isAgeEq()) {
+            return shape | AGE_EQ;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+
+    public static boolean has(int shape, int predicate) {
+        return (shape & predicate) != 0;
+    }
+
+    /**
+     * 메트릭 태그 / 로그용 이름 (ex. "teamName,ageGoe", 조건이 없으면 "none")
+     */
+    public static String describe(int shape) {
+        if (shape == 0) {
+            return "none";
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        if (has(shape, USERNAME)) {
+            joiner.add("username");
+        }
+        if (has(shape, TEAM_NAME)) {
+            joiner.add("teamName");
+        }
+        if (has(shape, AGE_GOE)) {
+            joiner.add("ageGoe");
+        }
+        if (has(shape, AGE_LOE)) {
+            joiner.add("ageLoe");
+        }
+        if (has(shape, AGE_EQ)) {
+            joiner.add("ageEq");
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.Query;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * 검색 쿼리 비용 상한
+ * - 목록 조회는 max-rows건까지만: 조건이 있는데 넘으면 QueryLimitExceededException (페이징 API / export를 쓰도록)
+ * - 검색 조건이 하나도 없는 모양(테이블 전체)은 기본(unbounded=reject)으로 SQL을 보내기 전에 거절
+ *   paginate면 첫 max-rows건만 돌려주는데 호출한 쪽은 잘렸는지 알 수 없으므로 명시적으로 켠 경우에만 씀
+ * - findAll처럼 원래 전체를 읽는 메서드는 unbounded 설정과 상관없이 fetchAll로 max-rows건까지만 (넘으면 예외)
+ * - 모든 검색 쿼리에 statement timeout 힌트
+ * 걸린 건은 member.query.guard (method, shape, reason) 카운터로 남김
+ *
+ * export(streamMemberByWhereParam)는 원래 전체를 내려받는 용도라 적용하지 않음
+ */
+@Slf4j
+@Component
+public class QueryGuard {
+
+    public static final String UNBOUNDED_REJECTED = "unbounded_rejected";
+    public static final String UNBOUNDED_PAGINATED = "unbounded_paginated";
+    public static final String MAX_ROWS = "max_rows";
+    public static final String PAGE_SIZE = "page_size";
+    public static final String TIMEOUT = "timeout";
+
+    private final MeterRegistry registry;
+    private final int maxRows;
+    private final int timeoutSeconds;
+    private final boolean rejectUnbounded;
+
+    public QueryGuard(MeterRegistry registry,
+                      @Value("${member.query-guard.max-rows:10000}") int maxRows,
+                      @Value("${member.query-guard.timeout-seconds:5}") int timeoutSeconds,
+                      @Value("${member.query-guard.unbounded:reject}") String unbounded) {
+        this.registry = registry;
+        this.maxRows = maxRows;
+        this.timeoutSeconds = timeoutSeconds;
+        this.rejectUnbounded = "reject".equalsIgnoreCase(unbounded);
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public <T> List<T> fetch(String method, int shape, IntFunction<List<T>> query) {
+        return fetch(method, shape, query, List::size);
+    }
+
+    /**
+     * query에는 이번에 읽을 최대 건수(limit)가 넘어감
+     */
+    public <T> T fetch(String method, int shape, IntFunction<T> query, ToIntFunction<T> rows) {
+        if (shape == 0) {
+            if (rejectUnbounded) {
+                trip(method, shape, UNBOUNDED_REJECTED);
+                throw new QueryLimitExceededException("검색 조건 없이 전체를 조회할 수 없습니다. 조건을 주거나 페이징 API를 사용하세요");
+            }
+            T result = query.apply(maxRows);
+            if (rows.applyAsInt(result) >= maxRows) {  //잘렸을 수 있는 경우만
+                trip(method, shape, UNBOUNDED_PAGINATED);
+                log.warn("[query-guard] {} 조건 없는 조회를 {}건으로 잘라서 반환", method, maxRows);
+            }
+            return result;
+        }
+        T result = query.apply(maxRows + 1);  //한 건 더 읽어서 넘었는지 판단
+        if (rows.applyAsInt(result) > maxRows) {
+            trip(method, shape, MAX_ROWS);
+            throw new QueryLimitExceededException("검색 결과가 " + maxRows + "건을 넘습니다. 조건을 좁히거나 페이징 API를 사용하세요");
+        }
+        return result;
+    }
+
+    /**
+     * 조건이 없는 것이 정상인 전체 조회용, 검색 API의 unbounded 정책을 적용하지 않고 max-rows건을 넘으면 거절
+     */
+    public <T> List<T> fetchAll(String method, IntFunction<List<T>> query) {
+        List<T> result = query.apply(maxRows + 1);
+        if (result.size() > maxRows) {
+            trip(method, 0, MAX_ROWS);
+            throw new QueryLimitExceededException("전체 건수가 " + maxRows + "건을 넘습니다. 페이징 API를 사용하세요");
+        }
+        return result;
+    }
+
+    /**
+     * 페이지 크기 자체가 max-rows보다 크면 페이징이 없는 것과 같음
+     */
+    public void checkPageSize(String method, int shape, int pageSize) {
+        if (pageSize > maxRows) {
+            trip(method, shape, PAGE_SIZE);
+            throw new QueryLimitExceededException("페이지 크기는 " + maxRows + " 이하여야 합니다");
+        }
+    }
+
+    public <T> JPAQuery<T> timeout(JPAQuery<T> query) {
+        return query.setHint(QueryHints.HINT_TIMEOUT, timeoutSeconds);
+    }
+
+    public <Q extends Query> Q timeout(Q query) {
+        query.setHint(QueryHints.HINT_TIMEOUT, timeoutSeconds);
+        return query;
+    }
+
+    /**
+     * statement timeout은 거치는 계층(hibernate / JPA / spring 예외 변환)에 따라 다른 타입으로 감싸져서 올라옴
+     */
+    public static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof javax.persistence.QueryTimeoutException
+                    || cause instanceof org.hibernate.QueryTimeoutException
+                    || cause instanceof org.springframework.dao.QueryTimeoutException
+                    || cause instanceof SQLTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void trip(String method, int shape, String reason) {
+        registry.counter("member.query.guard",
+                "method", method, "shape", MemberSearchShape.describe(shape), "reason", reason).increment();
+    }
+}
@@ -0,0 +1,8 @@
+package study.querydsl.repository;
+
+public class QueryLimitExceededException extends RuntimeException {
+
+    public QueryLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package study.querydsl.repository;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import study.querydsl.entity.Team;
+
+import javax.persistence.QueryHint;
+import java.util.Optional;
+
+public interface TeamRepository extends JpaRepository<Team, Long> {
+
+    /**
+     * 팀 이름 조회는 쿼리 캐시(team-by-name 리전)에 결과 id를 두고, 엔티티는 team 리전에서 읽음
+     * team 테이블이 바뀌면(bulk update/delete 포함) hibernate가 쿼리 캐시를 무효화함
+     */
+    @org.springframework.data.jpa.repository.QueryHints({
+            @QueryHint(name = QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = QueryHints.HINT_CACHE_REGION, value = "team-by-name")})
+    Optional<Team> findByName(String name);
+
+    /**
+     * 이름은 unique가 아니므로 같은 이름의 팀이 여럿이면 먼저 만들어진(id가 가장 작은) 팀 (findByName은 예외)
+     */
+    @org.springframework.data.jpa.repository.QueryHints({
+            @QueryHint(name = QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = QueryHints.HINT_CACHE_REGION, value = "team-by-name")})
+    Optional<Team> findFirstByNameOrderByIdAsc(String name);
+}
@@ -0,0 +1,65 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.support.ResponseMappers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 검색 결과를 한 줄에 한 건씩(NDJSON) 바로 응답에 써줌 (Smile이면 값을 이어서 씀)
+ * 힙에는 fetchSize 만큼의 row만 올라가므로 결과 건수와 상관없이 메모리 사용량이 일정함
+ */
+@Service
+public class MemberExportService {
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final ObjectWriter writer;
+    private final ObjectWriter smileWriter;
+    private final int fetchSize;
+
+    public MemberExportService(MemberJpaRepository memberJpaRepository, ResponseMappers responseMappers,
+                               @Value("${member.export.fetch-size:500}") int fetchSize) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.writer = responseMappers.mapper(MediaType.APPLICATION_JSON).writerFor(MemberTeamDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)  //row마다 flush 하지 않고 버퍼가 찰 때만 내보냄
+                .withRootValueSeparator("\n");
+        this.smileWriter = responseMappers.mapper(ResponseMappers.SMILE).writerFor(MemberTeamDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);  //한 스트림 안에서 반복되는 teamName은 back reference로 씀
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional(readOnly = true)  //스트림을 다 읽을 때까지 커넥션을 잡고 있어야 함
+    public long exportNdjson(MemberSearchCondition condition, OutputStream out) throws IOException {
+        return export(writer, condition, out);
+    }
+
+    @Transactional(readOnly = true)
+    public long exportSmile(MemberSearchCondition condition, OutputStream out) throws IOException {
+        return export(smileWriter, condition, out);
+    }
+
+    private long export(ObjectWriter writer, MemberSearchCondition condition, OutputStream out) throws IOException {
+        long rows = 0;
+        try (Stream<MemberTeamDto> stream = memberJpaRepository.streamMemberByWhereParam(condition, fetchSize);
+             SequenceWriter sequence = writer.writeValues(out)) {
+            Iterator<MemberTeamDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                sequence.write(iterator.next());
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,54 @@
+package study.querydsl.statistics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 팀 하나의 나이 분포
+ * 나이별 인원수를 그대로 들고 있어서 삭제 / 팀 이동이 있어도 min, max를 다시 스캔하지 않고 바로 구함
+ */
+class TeamAgeStatistics {
+
+    private final TreeMap<Integer, Long> countByAge = new TreeMap<>();
+    private long count;
+    private long ageSum;
+
+    void add(int age, long members) {
+        countByAge.merge(age, members, Long::sum);
+        if (countByAge.get(age) <= 0) {
+            countByAge.remove(age);
+        }
+        count += members;
+        ageSum += age * members;
+    }
+
+    boolean isEmpty() {
+        return count <= 0;
+    }
+
+    long count() {
+        return count;
+    }
+
+    long ageSum() {
+        return ageSum;
+    }
+
+    Integer ageMin() {
+        return countByAge.isEmpty() ? null : countByAge.firstKey();
+    }
+
+    Integer ageMax() {
+        return countByAge.isEmpty() ? null : countByAge.lastKey();
+    }
+
+    Map<String, Long> histogram(int bucketWidth) {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        countByAge.forEach((age, members) -> {
+            int from = Math.floorDiv(age, bucketWidth) * bucketWidth;
+            histogram.merge(from + "-" + (from + bucketWidth - 1), members, Long::sum);
+        });
+        return histogram;
+    }
+}
@@ -0,0 +1,201 @@
+package study.querydsl.statistics;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Member insert / update(나이 변경, changeTeam) / delete를 hibernate 엔티티 이벤트로 받아서 팀 통계 변경분을 만듦
+ * update는 이전 상태(oldState)로 빼고 새 상태로 더함, 변경분은 커밋된 뒤에만 TeamStatisticsStore에 반영 (롤백이면 버림)
+ */
+@Component
+public class TeamStatisticsListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final TeamStatisticsStore store;
+
+    public TeamStatisticsListener(EntityManagerFactory emf, TeamStatisticsStore store) {
+        this.emf = emf;
+        this.store = store;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            record(Collections.singletonList(delta(event.getPersister(), event.getState(), 1)));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        if (event.getOldState() == null) {  //이전 상태를 모르면(detached update) 변경분을 만들 수 없으므로 커밋 후 다시 집계
+            PendingDeltas pending = pending();
+            if (pending != null) {
+                pending.rebuild = true;
+            } else {
+                store.markStale();
+            }
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Object[] before = event.getOldState();
+        Object[] after = event.getState();
+        if (Objects.equals(teamId(persister, before), teamId(persister, after)) && age(persister, before) == age(persister, after)) {
+            return;  //이름만 바뀐 경우
+        }
+        record(Arrays.asList(delta(persister, before, -1), delta(persister, after, 1)));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            record(Collections.singletonList(delta(event.getPersister(), event.getDeletedState(), -1)));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void record(List<TeamStatisticsStore.Delta> deltas) {
+        List<TeamStatisticsStore.Delta> teamDeltas = new ArrayList<>();
+        deltas.stream().filter(Objects::nonNull).forEach(teamDeltas::add);
+        if (teamDeltas.isEmpty()) {
+            return;
+        }
+        PendingDeltas pending = pending();
+        if (pending != null) {
+            teamDeltas.forEach(pending::add);
+        } else {
+            store.apply(teamDeltas);
+        }
+    }
+
+    /**
+     * 트랜잭션 밖이면 null (바로 반영)
+     */
+    private PendingDeltas pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingDeltas pending = (PendingDeltas) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {  //트랜잭션당 synchronization은 하나만 등록
+            pending = new PendingDeltas();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    /**
+     * 팀이 없는 회원은 통계 대상이 아니므로 null
+     */
+    private static TeamStatisticsStore.Delta delta(EntityPersister persister, Object[] state, int members) {
+        Long teamId = teamId(persister, state);
+        return teamId != null ? new TeamStatisticsStore.Delta(teamId, age(persister, state), members) : null;
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {  //getReference로 넣은 팀은 로딩하지 않고 id만 꺼냄
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    /**
+     * 트랜잭션 안의 변경분을 (팀, 나이)별 증감으로 합쳐둠 → 대량 적재처럼 row가 많아도 서로 다른 (팀, 나이) 수만큼만 메모리를 씀
+     */
+    private class PendingDeltas implements TransactionSynchronization {
+
+        private final Map<Long, Map<Integer, Long>> members = new HashMap<>();  //teamId -> age -> 증감
+        private boolean rebuild;
+        private boolean committing;
+
+        private void add(TeamStatisticsStore.Delta delta) {
+            Map<Integer, Long> ages = members.computeIfAbsent(delta.getTeamId(), id -> new HashMap<>());
+            if (ages.merge(delta.getAge(), delta.getMembers(), Long::sum) == 0) {  //더했다 뺀 경우는 아예 지움
+                ages.remove(delta.getAge());
+                if (ages.isEmpty()) {
+                    members.remove(delta.getTeamId());
+                }
+            }
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TeamStatisticsListener.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(TeamStatisticsListener.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {  //커밋 중인 동안은 재집계와 겹쳤는지 store가 알 수 있도록
+            store.beginCommit();
+            committing = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TeamStatisticsListener.this);
+            if (!committing) {  //beforeCommit 전에 롤백된 경우
+                return;
+            }
+            List<TeamStatisticsStore.Delta> deltas = null;
+            if (!rebuild) {
+                deltas = new ArrayList<>();
+                List<TeamStatisticsStore.Delta> collected = deltas;
+                members.forEach((teamId, ages) -> ages.forEach((age, count) ->
+                        collected.add(new TeamStatisticsStore.Delta(teamId, age, count))));
+            }
+            store.endCommit(status == STATUS_COMMITTED, deltas);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package study.querydsl.statistics;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.repository.TeamRepository;
+import study.querydsl.support.MemberDataChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 팀별 회원 수 / 나이 합계, 최소, 최대 / 나이 분포를 메모리에 들고 있는 읽기 모델
+ * 평소에는 TeamStatisticsListener가 커밋된 변경분(delta)만 반영하므로 조회는 팀 수에 비례
+ * bulk update/delete처럼 엔티티 이벤트가 없는 변경이 있었거나 주기적으로 stale 표시 → 다음 조회 때 group by 한번으로 다시 집계
+ * 재집계 쿼리가 도는 동안 커밋된 트랜잭션은 스냅샷에 이미 들어갔을 수 있으므로 변경분을 더하지 않고 stale로 남겨서 다시 집계 (이중 반영 방지)
+ */
+@Slf4j
+@Component
+public class TeamStatisticsStore {
+
+    private final JPAQueryFactory queryFactory;
+    private final TeamRepository teamRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int bucketWidth;
+
+    private final Map<Long, TeamAgeStatistics> statistics = new HashMap<>();
+    private final Object rebuildLock = new Object();
+    private boolean stale = true;  //처음 조회할 때 한번 전체 집계
+    private boolean rebuilding;
+    private boolean changedDuringRebuild;  //재집계 쿼리와 겹친 커밋은 스냅샷에 들어갔는지 알 수 없음
+    private int committing;  //beforeCommit ~ afterCompletion 사이에 있는 트랜잭션 수
+
+    public TeamStatisticsStore(EntityManager em, TeamRepository teamRepository, PlatformTransactionManager transactionManager,
+                               @Value("${member.team-statistics.histogram-bucket:10}") int bucketWidth) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.teamRepository = teamRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);  //커밋된 데이터만 집계
+        this.readOnlyTransaction.setReadOnly(true);
+        this.bucketWidth = bucketWidth;
+    }
+
+    /**
+     * 락은 메모리 통계를 읽는 동안만 잡고, 재집계 쿼리 / 팀 이름 조회(DB I/O)는 락 밖에서 함
+     * → 커밋마다 도는 apply()가 조회 화면의 DB I/O 뒤에 줄서지 않음
+     */
+    public List<TeamStatisticsDto> statistics() {
+        return readOnlyTransaction.execute(status -> {
+            List<TeamStatisticsDto> unnamed = current();
+            List<Long> teamIds = new ArrayList<>();
+            unnamed.forEach(team -> teamIds.add(team.getTeamId()));
+            Map<Long, String> teamNames = new HashMap<>();
+            teamRepository.findAllById(teamIds).forEach(team -> teamNames.put(team.getId(), team.getName()));
+
+            List<TeamStatisticsDto> results = new ArrayList<>(unnamed.size());
+            unnamed.forEach(team -> results.add(team.withTeamName(teamNames.get(team.getTeamId()))));
+            return results;
+        });
+    }
+
+    /**
+     * stale이면 재집계(한번에 하나만)한 뒤 팀 id 순으로 (이름 없이) 돌려줌
+     */
+    private List<TeamStatisticsDto> current() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                if (!stale) {
+                    return snapshot();
+                }
+                rebuilding = true;
+                changedDuringRebuild = committing > 0;  //이미 커밋 중인 트랜잭션은 쿼리보다 먼저 커밋될지 알 수 없음
+            }
+            Map<Long, TeamAgeStatistics> rebuilt;
+            try {
+                rebuilt = rebuild();
+            } finally {
+                synchronized (this) {
+                    rebuilding = false;
+                }
+            }
+            synchronized (this) {
+                statistics.clear();
+                statistics.putAll(rebuilt);
+                //재집계와 겹친 커밋이 있으면 중복 / 누락 여부를 모르므로 stale 유지 → 다음 조회에서 다시 집계
+                stale = changedDuringRebuild || committing > 0;
+                log.debug("팀 통계 재집계: 팀 {}개 (stale={})", statistics.size(), stale);
+                return snapshot();
+            }
+        }
+    }
+
+    private List<TeamStatisticsDto> snapshot() {
+        List<TeamStatisticsDto> results = new ArrayList<>();
+        new TreeMap<>(statistics).forEach((teamId, team) -> results.add(new TeamStatisticsDto(
+                teamId, null, team.count(), team.ageSum(), team.ageMin(), team.ageMax(), team.histogram(bucketWidth))));
+        return results;
+    }
+
+    /**
+     * TeamStatisticsListener가 트랜잭션 커밋 직전(beforeCommit)에 호출, 끝나면 반드시 endCommit
+     */
+    synchronized void beginCommit() {
+        committing++;
+        if (rebuilding) {
+            changedDuringRebuild = true;
+        }
+    }
+
+    /**
+     * 커밋됐으면 변경분 반영 (deltas가 null이면 변경분을 모르는 경우라 stale 표시)
+     */
+    synchronized void endCommit(boolean committed, List<Delta> deltas) {
+        committing--;
+        if (!committed) {
+            return;
+        }
+        if (deltas == null) {
+            markStale();
+        } else {
+            apply(deltas);
+        }
+    }
+
+    /**
+     * 커밋된 트랜잭션의 변경분 반영, stale이면 다음 집계에 어차피 포함되므로 버림
+     */
+    synchronized void apply(List<Delta> deltas) {
+        if (rebuilding) {
+            changedDuringRebuild = true;
+        }
+        if (stale) {
+            return;
+        }
+        for (Delta delta : deltas) {
+            TeamAgeStatistics team = statistics.computeIfAbsent(delta.teamId, id -> new TeamAgeStatistics());
+            team.add(delta.age, delta.members);
+            if (team.isEmpty()) {
+                statistics.remove(delta.teamId);
+            }
+        }
+    }
+
+    synchronized void markStale() {
+        stale = true;
+        if (rebuilding) {  //재집계가 끝나도 stale로 남도록
+            changedDuringRebuild = true;
+        }
+    }
+
+    synchronized boolean isStale() {
+        return stale;
+    }
+
+    @EventListener
+    public void onDataChanged(MemberDataChangedEvent event) {
+        if (event.isBulk() && "member".equals(event.getTable())) {
+            markStale();
+        }
+    }
+
+    /**
+     * 놓친 변경(다른 인스턴스, 직접 SQL 등)이 있어도 주기적으로 다시 맞춰짐
+     */
+    @Scheduled(fixedDelayString = "${member.team-statistics.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        markStale();
+    }
+
+    private Map<Long, TeamAgeStatistics> rebuild() {
+        NumberExpression<Long> members = member.count();
+        List<Tuple> rows = queryFactory.select(member.team.id, member.age, members)
+                .from(member)
+                .where(member.team.isNotNull())
+                .groupBy(member.team.id, member.age)
+                .fetch();
+
+        Map<Long, TeamAgeStatistics> rebuilt = new HashMap<>();
+        for (Tuple row : rows) {
+            rebuilt.computeIfAbsent(row.get(member.team.id), id -> new TeamAgeStatistics())
+                    .add(row.get(member.age), row.get(members));
+        }
+        return rebuilt;
+    }
+
+    static final class Delta {
+        private final Long teamId;
+        private final int age;
+        private final long members;   //추가면 +, 삭제면 -
+
+        Delta(Long teamId, int age, long members) {
+            this.teamId = teamId;
+            this.age = age;
+            this.members = members;
+        }
+
+        Long getTeamId() {
+            return teamId;
+        }
+
+        int getAge() {
+            return age;
+        }
+
+        long getMembers() {
+            return members;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package study.querydsl.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * hibernate가 실행하는 SQL을 보고 member / team 테이블이 바뀌면 MemberDataChangedEvent를 발행
+ * bulk update/delete는 엔티티 콜백을 타지 않기 때문에 SQL 단에서 잡음
+ * 엔티티 flush 중(EntityWriteTracker)이 아닌 DML은 id 한 건 조건이어도 bulk로 표시
+ *
+ * 문장이 나갈 때 한번, 트랜잭션이 끝난 뒤 한번 더 발행 (커밋 전에 다른 스레드가 캐시를 다시 채웠을 수 있으므로)
+ */
+@Component
+public class DataChangeStatementInspector implements StatementInspector {
+
+    private static final Pattern DML = Pattern.compile(
+            "^(?:insert\\s+into|update|delete\\s+from|delete)\\s+(member|team)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final ApplicationEventPublisher publisher;
+
+    public DataChangeStatementInspector(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        String body = SqlStatements.stripComment(sql);
+        if (body.isEmpty() || Character.toLowerCase(body.charAt(0)) == 's') {  //select는 바로 통과
+            return sql;
+        }
+        Matcher matcher = DML.matcher(body);
+        if (matcher.find()) {
+            MemberDataChangedEvent event = new MemberDataChangedEvent(
+                    matcher.group(1).toLowerCase(Locale.ROOT), !EntityWriteTracker.inEntityWrite());
+            publisher.publishEvent(event);
+            publishAfterCompletion(event);
+        }
+        return sql;
+    }
+
+    private void publishAfterCompletion(MemberDataChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {  //트랜잭션당 synchronization은 하나만 등록
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.events.add(event);
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final Set<MemberDataChangedEvent> events = new LinkedHashSet<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(DataChangeStatementInspector.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(DataChangeStatementInspector.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(DataChangeStatementInspector.this);
+            EntityWriteTracker.reset();
+            for (MemberDataChangedEvent event : events) {
+                publisher.publishEvent(event);
+            }
+        }
+    }
+}
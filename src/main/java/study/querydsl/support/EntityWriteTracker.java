@@ -0,0 +1,104 @@
+package study.querydsl.support;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreDeleteEvent;
+import org.hibernate.event.spi.PreDeleteEventListener;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 지금 실행되는 SQL이 엔티티 insert/update/delete(flush)에서 나온 것인지 표시
+ * hibernate는 엔티티 한 건을 쓸 때 pre 이벤트 → SQL → post 이벤트 순으로 실행하므로 그 사이에만 true
+ * DataChangeStatementInspector가 이 표시가 없는 member/team DML을 bulk(엔티티 이벤트가 없는 변경)로 봄
+ *
+ * inspector는 EntityManagerFactory보다 먼저 만들어지므로 주입하지 않고 static으로 확인함
+ */
+@Component
+public class EntityWriteTracker implements PreInsertEventListener, PreUpdateEventListener, PreDeleteEventListener,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final ThreadLocal<Boolean> ENTITY_WRITE = new ThreadLocal<>();
+
+    private final EntityManagerFactory emf;
+
+    public EntityWriteTracker(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.PRE_INSERT, this);
+        registry.appendListeners(EventType.PRE_UPDATE, this);
+        registry.appendListeners(EventType.PRE_DELETE, this);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    public static boolean inEntityWrite() {
+        return ENTITY_WRITE.get() != null;
+    }
+
+    /**
+     * SQL이 실패해서 post 이벤트가 오지 않은 경우 트랜잭션이 끝날 때 정리
+     */
+    public static void reset() {
+        ENTITY_WRITE.remove();
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        ENTITY_WRITE.set(Boolean.TRUE);
+        return false;  //veto 하지 않음
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        ENTITY_WRITE.set(Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public boolean onPreDelete(PreDeleteEvent event) {
+        ENTITY_WRITE.set(Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        ENTITY_WRITE.remove();
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        ENTITY_WRITE.remove();
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        ENTITY_WRITE.remove();
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
@@ -0,0 +1,241 @@
+package study.querydsl.support;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberSearchQueryCache;
+import study.querydsl.repository.MemberSearchShape;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 실제로 자주 쓰이는 검색 조건 모양에 대해 hibernate가 만드는 SQL 그대로 EXPLAIN을 돌려서
+ * full scan(tableScan)이 나오는 모양을 찾고, 없는 인덱스를 DDL / @Index 형태로 제안함
+ * member.index-advisor.ddl-file을 지정하면 제안한 DDL을 파일로도 남김
+ */
+@Slf4j
+@Component
+public class IndexAdvisor {
+
+    //ex) PUBLIC.MEMBER MEMBER0_ /* PUBLIC.MEMBER.tableScan */
+    private static final Pattern TABLE_SCAN = Pattern.compile("(\\w+)\\.tableScan");
+
+    //EXPLAIN에 바인딩할 예시 값 (인덱스 선택에는 값보다 조건 모양이 중요함)
+    private static final MemberSearchCondition SAMPLE = sampleCondition();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MemberSearchQueryCache searchQueryCache;
+    private final MemberSearchShapeStats shapeStats;
+    private final long minCalls;
+    private final String ddlFile;
+
+    public IndexAdvisor(JdbcTemplate jdbcTemplate, MemberSearchQueryCache searchQueryCache,
+                        MemberSearchShapeStats shapeStats,
+                        @Value("${member.index-advisor.min-calls:100}") long minCalls,
+                        @Value("${member.index-advisor.ddl-file:}") String ddlFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.searchQueryCache = searchQueryCache;
+        this.shapeStats = shapeStats;
+        this.minCalls = minCalls;
+        this.ddlFile = ddlFile;
+    }
+
+    @Scheduled(initialDelayString = "${member.index-advisor.interval-ms:600000}",
+            fixedDelayString = "${member.index-advisor.interval-ms:600000}")
+    public void report() {
+        List<IndexAdvice> advices = analyze();
+        for (IndexAdvice advice : advices) {
+            if (advice.getMissing().isEmpty()) {
+                log.warn("[index-advisor] shape={} calls={} {} 을 full scan 하지만 제안할 인덱스가 이미 있음 (조인 순서 확인 필요)\n{}",
+                        MemberSearchShape.describe(advice.getShape()), advice.getCalls(), advice.getScannedTables(), advice.getPlan());
+            } else {
+                log.warn("[index-advisor] shape={} calls={} {} full scan, 제안: {}",
+                        MemberSearchShape.describe(advice.getShape()), advice.getCalls(), advice.getScannedTables(),
+                        advice.getMissing().stream().map(IndexDefinition::ddl).collect(Collectors.toList()));
+            }
+        }
+        if (StringUtils.hasText(ddlFile)) {
+            writeDdl(advices);
+        }
+    }
+
+    /**
+     * min-calls 이상 호출된 모양 중 full scan이 나오는 것만
+     */
+    public List<IndexAdvice> analyze() {
+        List<IndexAdvice> advices = new ArrayList<>();
+        Map<String, List<List<String>>> existing = existingIndexes();
+        for (int shape = 0; shape < MemberSearchShape.COUNT; shape++) {
+            long calls = shapeStats.calls(shape);
+            if (calls < minCalls) {
+                continue;
+            }
+            String plan = explain(shape);
+            Set<String> scanned = scannedTables(plan);
+            if (scanned.isEmpty()) {
+                continue;
+            }
+            List<IndexDefinition> missing = suggest(shape, scanned).stream()
+                    .filter(index -> !covered(index, existing))
+                    .collect(Collectors.toList());
+            advices.add(new IndexAdvice(shape, calls, plan, scanned, missing));
+        }
+        return advices;
+    }
+
+    /**
+     * 검색 쿼리를 hibernate가 번역한 SQL(MemberSearchQueryCache에 있음) 그대로 EXPLAIN
+     */
+    public String explain(int shape) {
+        return String.join("\n", jdbcTemplate.queryForList("explain " + searchQueryCache.sql(shape), String.class,
+                searchQueryCache.parameters(shape, SAMPLE).toArray()));
+    }
+
+    public static Set<String> scannedTables(String plan) {
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher matcher = TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            tables.add(matcher.group(1).toLowerCase(Locale.ROOT));
+        }
+        return tables;
+    }
+
+    /**
+     * username 일치가 가장 선택도가 높고, 그 다음 팀 + 나이 범위, 나이 범위만 있을 때는 age 단독
+     */
+    private static List<IndexDefinition> suggest(int shape, Set<String> scanned) {
+        List<IndexDefinition> suggestions = new ArrayList<>();
+        if (scanned.contains("member")) {
+            if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME)) {
+                suggestions.add(new IndexDefinition("member", "username"));
+            } else if (MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)) {
+                suggestions.add(new IndexDefinition("member", "team_id", "age"));
+            } else if (MemberSearchShape.has(shape, MemberSearchShape.AGE_GOE | MemberSearchShape.AGE_LOE | MemberSearchShape.AGE_EQ)) {
+                suggestions.add(new IndexDefinition("member", "age"));
+            }
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)) {
+            suggestions.add(new IndexDefinition("team", "name"));
+        }
+        return suggestions;
+    }
+
+    /**
+     * 이미 같은 컬럼들로 시작하는 인덱스가 있으면 제안하지 않음
+     */
+    private static boolean covered(IndexDefinition index, Map<String, List<List<String>>> existing) {
+        return existing.getOrDefault(index.getTable(), Collections.emptyList()).stream()
+                .anyMatch(columns -> columns.size() >= index.getColumns().size()
+                        && columns.subList(0, index.getColumns().size()).equals(index.getColumns()));
+    }
+
+    private Map<String, List<List<String>>> existingIndexes() {
+        return jdbcTemplate.execute((ConnectionCallback<Map<String, List<List<String>>>>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, List<List<String>>> indexes = new TreeMap<>();
+            for (String table : new String[]{"member", "team"}) {
+                Map<String, Map<Short, String>> columnsByIndex = new TreeMap<>();
+                try (ResultSet rs = metaData.getIndexInfo(null, null, table.toUpperCase(Locale.ROOT), false, true)) {
+                    while (rs.next()) {
+                        if (rs.getString("INDEX_NAME") == null || rs.getString("COLUMN_NAME") == null) {
+                            continue;
+                        }
+                        columnsByIndex.computeIfAbsent(rs.getString("INDEX_NAME"), name -> new TreeMap<>())
+                                .put(rs.getShort("ORDINAL_POSITION"), rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                    }
+                }
+                indexes.put(table, columnsByIndex.values().stream()
+                        .map(columns -> new ArrayList<>(columns.values()))
+                        .collect(Collectors.toList()));
+            }
+            return indexes;
+        });
+    }
+
+    private void writeDdl(List<IndexAdvice> advices) {
+        List<String> ddl = advices.stream()
+                .flatMap(advice -> advice.getMissing().stream())
+                .map(IndexDefinition::ddl)
+                .distinct()
+                .collect(Collectors.toList());
+        try {
+            Files.write(Paths.get(ddlFile), ddl);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MemberSearchCondition sampleCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+        return condition;
+    }
+
+    @Getter
+    public static class IndexAdvice {
+        private final int shape;
+        private final long calls;
+        private final String plan;
+        private final Set<String> scannedTables;
+        private final List<IndexDefinition> missing;
+
+        private IndexAdvice(int shape, long calls, String plan, Set<String> scannedTables, List<IndexDefinition> missing) {
+            this.shape = shape;
+            this.calls = calls;
+            this.plan = plan;
+            this.scannedTables = scannedTables;
+            this.missing = missing;
+        }
+    }
+
+    @Getter
+    public static class IndexDefinition {
+        private final String table;
+        private final List<String> columns;
+
+        private IndexDefinition(String table, String... columns) {
+            this.table = table;
+            this.columns = List.of(columns);
+        }
+
+        public String name() {
+            return "idx_" + table + "_" + String.join("_", columns);
+        }
+
+        public String ddl() {
+            return "create index " + name() + " on " + table + " (" + String.join(", ", columns) + ");";
+        }
+
+        /**
+         * 엔티티의 @Table(indexes = ...)에 그대로 붙여넣을 수 있는 형태
+         */
+        public String annotation() {
+            return "@Index(name = \"" + name() + "\", columnList = \"" + String.join(", ", columns) + "\")";
+        }
+    }
+}
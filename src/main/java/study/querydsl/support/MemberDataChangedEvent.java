@@ -0,0 +1,28 @@
+package study.querydsl.support;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * member / team 테이블에 insert, update, delete가 나갔음을 알리는 이벤트
+ * 엔티티 persist뿐 아니라 querydsl bulk execute()도 포함
+ * bulk는 엔티티 한 건(id 조건)이 아닌 문장이라 hibernate 엔티티 이벤트가 발생하지 않은 경우
+ */
+@Getter
+@ToString
+@EqualsAndHashCode  //트랜잭션이 끝난 뒤에는 (테이블, bulk) 조합별로 한번씩만 발행
+public class MemberDataChangedEvent {
+
+    private final String table;
+    private final boolean bulk;
+
+    public MemberDataChangedEvent(String table) {
+        this(table, false);
+    }
+
+    public MemberDataChangedEvent(String table, boolean bulk) {
+        this.table = table;
+        this.bulk = bulk;
+    }
+}
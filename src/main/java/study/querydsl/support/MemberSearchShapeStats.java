@@ -0,0 +1,24 @@
+package study.querydsl.support;
+
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.MemberSearchShape;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 실제로 들어온 검색 조건 모양(MemberSearchShape)별 호출 수
+ * RepositoryMetricsAspect가 기록하고 IndexAdvisor가 읽음
+ */
+@Component
+public class MemberSearchShapeStats {
+
+    private final AtomicLongArray calls = new AtomicLongArray(MemberSearchShape.COUNT);
+
+    public void record(int shape) {
+        calls.incrementAndGet(shape);
+    }
+
+    public long calls(int shape) {
+        return calls.get(shape);
+    }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.support;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청 하나를 QueryBudgetInspector의 집계 단위로 묶어줌
+ */
+@Component
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private final QueryBudgetInspector queryBudgetInspector;
+
+    public QueryBudgetFilter(QueryBudgetInspector queryBudgetInspector) {
+        this.queryBudgetInspector = queryBudgetInspector;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        queryBudgetInspector.beginRequest(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            queryBudgetInspector.endRequest();
+        }
+    }
+}
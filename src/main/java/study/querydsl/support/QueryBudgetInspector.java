@@ -0,0 +1,135 @@
+package study.querydsl.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP 요청 / 트랜잭션 단위로 실행된 SQL 수를 세고 N+1을 잡아냄
+ * - 전체 SQL 수가 max-statements를 넘거나
+ * - 지연 로딩 모양의 select(테이블 하나를 조인 / 다른 조건 없이 pk 또는 fk 컬럼 하나로만 조회)가
+ *   같은 문장으로 repeated-threshold번을 넘게 반복되면 위반 (username 같은 일반 컬럼 조회의 반복은 N+1로 보지 않음)
+ * 운영에서는 로그만 남기고, fail-on-violation=true(테스트)면 예외를 던져서 쿼리를 실패시킴
+ */
+@Slf4j
+@Component
+public class QueryBudgetInspector implements StatementInspector {
+
+    //엔티티 프록시 초기화 ex) select team0_.team_id as team_id1_1_0_, team0_.name as name2_1_0_ from team team0_ where team0_.team_id=?
+    //컬렉션 초기화      ex) select members0_.team_id as team_id4_0_0_, ... from member members0_ where members0_.team_id=?
+    private static final Pattern LAZY_LOAD = Pattern.compile(
+            "^select\\b.*\\sfrom\\s+\\w+\\s+\\w+\\s+where\\s+\\w+\\.\\w+_id\\s*=\\s*\\?$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final ThreadLocal<QueryScope> REQUEST_SCOPE = new ThreadLocal<>();
+
+    private final int maxStatements;
+    private final int repeatedThreshold;
+    private final boolean failOnViolation;
+
+    public QueryBudgetInspector(@Value("${member.query-budget.max-statements:100}") int maxStatements,
+                                @Value("${member.query-budget.repeated-threshold:10}") int repeatedThreshold,
+                                @Value("${member.query-budget.fail-on-violation:false}") boolean failOnViolation) {
+        this.maxStatements = maxStatements;
+        this.repeatedThreshold = repeatedThreshold;
+        this.failOnViolation = failOnViolation;
+    }
+
+    public void beginRequest(String name) {
+        REQUEST_SCOPE.set(new QueryScope("request " + name));
+    }
+
+    public void endRequest() {
+        REQUEST_SCOPE.remove();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        QueryScope request = REQUEST_SCOPE.get();
+        QueryScope transaction = transactionScope();
+        if (request == null && transaction == null) {
+            return sql;
+        }
+        String body = SqlStatements.stripComment(sql);
+        boolean lazyLoad = LAZY_LOAD.matcher(body).matches();
+        if (request != null) {
+            check(request, body, lazyLoad);
+        }
+        if (transaction != null) {
+            check(transaction, body, lazyLoad);
+        }
+        return sql;
+    }
+
+    private void check(QueryScope scope, String sql, boolean lazyLoad) {
+        scope.statements++;
+        if (scope.statements == maxStatements + 1) {  //넘는 순간 한번만 보고
+            violation(scope, "SQL이 " + scope.statements + "건 이상 실행됨 (허용 " + maxStatements + "건)");
+        }
+        if (lazyLoad) {
+            int repeated = scope.lazyLoads.merge(sql, 1, Integer::sum);
+            if (repeated == repeatedThreshold + 1) {
+                violation(scope, "같은 모양의 지연 로딩이 " + repeated + "번 이상 반복됨 (N+1 의심): " + sql);
+            }
+        }
+    }
+
+    private void violation(QueryScope scope, String message) {
+        String report = "[" + scope.name + "] " + message;
+        if (failOnViolation) {
+            throw new QueryBudgetExceededException(report);
+        }
+        log.warn(report);
+    }
+
+    private QueryScope transactionScope() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        TransactionScope scope = (TransactionScope) TransactionSynchronizationManager.getResource(this);
+        if (scope == null) {
+            scope = new TransactionScope("transaction " + TransactionSynchronizationManager.getCurrentTransactionName());
+            TransactionSynchronizationManager.bindResource(this, scope);
+            TransactionSynchronizationManager.registerSynchronization(scope);
+        }
+        return scope;
+    }
+
+    private static class QueryScope {
+        private final String name;
+        private final Map<String, Integer> lazyLoads = new HashMap<>();
+        private int statements;
+
+        private QueryScope(String name) {
+            this.name = name;
+        }
+    }
+
+    private class TransactionScope extends QueryScope implements TransactionSynchronization {
+
+        private TransactionScope(String name) {
+            super(name);
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(QueryBudgetInspector.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(QueryBudgetInspector.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(QueryBudgetInspector.this);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package study.querydsl.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberSearchShape;
+import study.querydsl.repository.QueryGuard;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 리포지토리 메서드별 지연시간 / 반환 row 수 / 실행된 SQL 수 / count 쿼리 여부를 micrometer로 기록
+ * 태그: method, shape(검색 조건 모양), outcome, countQuery → /actuator/metrics/member.repository 로 확인
+ *
+ * MemberRepositoryImpl은 MemberRepository 프록시를 통해 호출되므로 this(MemberRepository)로 같이 잡힘
+ * SQL 수는 호출한 스레드 기준이라 다른 스레드에서 도는 쿼리(병렬 카운트 등)는 포함되지 않음
+ * CompletableFuture를 돌려주는 비동기 메서드는 future가 끝날 때 지연시간 / row 수만 기록 (SQL 수는 기록하지 않음)
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry registry;
+    private final SqlStatementCounter statementCounter;
+    private final MemberSearchShapeStats shapeStats;
+    private final QueryGuard queryGuard;
+
+    public RepositoryMetricsAspect(MeterRegistry registry, SqlStatementCounter statementCounter,
+                                   MemberSearchShapeStats shapeStats, QueryGuard queryGuard) {
+        this.registry = registry;
+        this.statementCounter = statementCounter;
+        this.shapeStats = shapeStats;
+        this.queryGuard = queryGuard;
+    }
+
+    @Around("this(study.querydsl.repository.MemberRepository) || target(study.querydsl.repository.MemberJpaRepository)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        MemberSearchCondition condition = conditionOf(joinPoint.getArgs());
+        if (condition != null) {
+            shapeStats.record(MemberSearchShape.of(condition));  //IndexAdvisor가 자주 쓰이는 모양만 실행계획을 봄
+        }
+        String method = joinPoint.getSignature().getName();
+        long statementsBefore = statementCounter.statements();
+        long countQueriesBefore = statementCounter.countQueries();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        Object result = null;
+        boolean async = false;
+        try {
+            result = joinPoint.proceed();
+            if (result instanceof CompletableFuture) {  //비동기 검색은 제출 시점이 아니라 future가 끝날 때 기록 (executor 대기 + 쿼리 시간)
+                async = true;
+                return ((CompletableFuture<?>) result).whenComplete((value, e) -> stop(method, condition, sample,
+                        e == null ? "success" : outcomeOf(method, condition, e), "n/a", value));  //count 쿼리 여부는 다른 스레드라 알 수 없음
+            }
+            outcome = "success";
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(method, condition, e);
+            throw e;
+        } finally {
+            if (!async) {
+                stop(method, condition, sample, outcome,
+                        String.valueOf(statementCounter.countQueries() > countQueriesBefore), result);
+                DistributionSummary.builder("member.repository.statements")
+                        .tags(tagsOf(method, condition))
+                        .register(registry)
+                        .record(statementCounter.statements() - statementsBefore);
+            }
+        }
+    }
+
+    /**
+     * statement timeout도 QueryGuard가 걸러낸 건으로 같이 집계
+     */
+    private String outcomeOf(String method, MemberSearchCondition condition, Throwable e) {
+        if (QueryGuard.isTimeout(e)) {
+            queryGuard.trip(method, condition != null ? MemberSearchShape.of(condition) : 0, QueryGuard.TIMEOUT);
+            return "timeout";
+        }
+        return "error";
+    }
+
+    private void stop(String method, MemberSearchCondition condition, Timer.Sample sample, String outcome,
+                      String countQuery, Object result) {
+        Tags tags = tagsOf(method, condition);
+        sample.stop(Timer.builder("member.repository")
+                .tags(tags)
+                .tag("outcome", outcome)
+                .tag("countQuery", countQuery)
+                .publishPercentileHistogram()
+                .register(registry));
+        long rows = rowsOf(result);
+        if (rows >= 0) {
+            DistributionSummary.builder("member.repository.rows")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(rows);
+        }
+    }
+
+    private static Tags tagsOf(String method, MemberSearchCondition condition) {
+        return Tags.of("method", method, "shape", shapeOf(condition));
+    }
+
+    private static MemberSearchCondition conditionOf(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition) {
+                return (MemberSearchCondition) arg;
+            }
+        }
+        return null;
+    }
+
+    private static String shapeOf(MemberSearchCondition condition) {
+        return condition != null ? MemberSearchShape.describe(MemberSearchShape.of(condition)) : "n/a";
+    }
+
+    /**
+     * 건수를 알 수 없는 반환 타입(Stream, void 등)은 -1
+     */
+    private static long rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {  //Page 포함
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof MemberCursorPage) {
+            return ((MemberCursorPage) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,62 @@
+package study.querydsl.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * 회원 검색 응답 포맷(JSON / Smile)별 ObjectMapper
+ * Smile은 필드 이름과 짧은 문자열 값을 한번만 쓰고 이후에는 back reference로 씀
+ * → 행마다 반복되는 필드 이름, teamName 값이 사전 번호처럼 1~2바이트로 줄어듦
+ * (ObjectMapper 빈을 하나 더 등록하면 boot 기본 ObjectMapper가 빠지므로 빈으로 등록하지 않고 여기서만 들고 있음)
+ */
+@Component
+public class ResponseMappers {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType SMILE = MediaType.valueOf(SMILE_VALUE);
+
+    private final ObjectMapper json;
+    private final ObjectMapper smile;
+
+    public ResponseMappers(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder builder) {
+        this.json = objectMapper;
+        this.smile = builder.factory(smileFactory()).build();   //boot의 jackson 설정은 그대로 두고 포맷만 바꿈
+    }
+
+    public static SmileFactory smileFactory() {
+        return SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+
+    /**
+     * Accept 헤더에서 q값이 가장 높은 지원 포맷, 없거나 모르면 JSON
+     */
+    public MediaType negotiate(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MediaType.sortByQualityValue(accepted);
+        for (MediaType mediaType : accepted) {
+            if (SMILE.equalsTypeAndSubtype(mediaType)) {
+                return SMILE;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    public ObjectMapper mapper(MediaType format) {
+        return SMILE.equals(format) ? smile : json;
+    }
+}
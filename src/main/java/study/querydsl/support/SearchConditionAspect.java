@@ -0,0 +1,118 @@
+package study.querydsl.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberBulkResult;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * 리포지토리 검색 메서드 앞단에서 MemberSearchCondition을 정리(normalized)된 사본으로 바꿔서 넘김
+ * → 어느 메서드 / 엔드포인트로 들어와도 같은 검색이면 같은 쿼리 모양, 같은 캐시 키가 됨
+ * ageGoe > ageLoe처럼 결과가 있을 수 없는 조건은 트랜잭션도 열지 않고 반환 타입에 맞는 빈 결과를 바로 돌려줌
+ *
+ * 트랜잭션 / 메트릭 aspect보다 먼저 돌아야 하므로 가장 높은 우선순위
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SearchConditionAspect {
+
+    private final MeterRegistry registry;
+
+    public SearchConditionAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("this(study.querydsl.repository.MemberRepository) || target(study.querydsl.repository.MemberJpaRepository)")
+    public Object normalize(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object[] args = joinPoint.getArgs();
+        boolean unsatisfiable = false;
+        boolean found = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof MemberSearchCondition) {
+                MemberSearchCondition normalized = ((MemberSearchCondition) args[i]).normalized();
+                unsatisfiable |= normalized.isUnsatisfiable();
+                args[i] = normalized;
+                found = true;
+            }
+        }
+        if (!found) {
+            return joinPoint.proceed();
+        }
+        if (unsatisfiable) {
+            MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+            Object empty = empty(signature.getMethod().getGenericReturnType(), args);
+            if (empty != null) {
+                registry.counter("member.search.short-circuit", "method", signature.getName()).increment();
+                return empty;
+            }
+        }
+        return joinPoint.proceed(args);
+    }
+
+    /**
+     * 모르는 반환 타입이면 null (그냥 쿼리를 실행함)
+     */
+    private static Object empty(Type genericType, Object[] args) {
+        Type rawType = genericType instanceof ParameterizedType ? ((ParameterizedType) genericType).getRawType() : genericType;
+        if (!(rawType instanceof Class)) {
+            return null;
+        }
+        Class<?> type = (Class<?>) rawType;
+        if (List.class.equals(type)) {
+            return Collections.emptyList();
+        }
+        if (Page.class.equals(type)) {
+            return new PageImpl<>(Collections.emptyList(), pageableOf(args), 0);
+        }
+        if (Slice.class.equals(type)) {
+            return new SliceImpl<>(Collections.emptyList(), pageableOf(args), false);
+        }
+        if (Stream.class.equals(type)) {
+            return Stream.empty();
+        }
+        if (MemberCursorPage.class.equals(type)) {
+            return new MemberCursorPage(Collections.emptyList(), null);
+        }
+        if (MemberColumns.class.equals(type)) {
+            return new MemberColumns.Builder(0).build();
+        }
+        if (MemberBulkResult.class.equals(type)) {
+            return new MemberBulkResult(0, 0, 0);
+        }
+        if (CompletableFuture.class.equals(type) && genericType instanceof ParameterizedType) {  //비동기 버전은 결과 타입을 한번 더 봄
+            Object result = empty(((ParameterizedType) genericType).getActualTypeArguments()[0], args);
+            return result != null ? CompletableFuture.completedFuture(result) : null;
+        }
+        return null;
+    }
+
+    private static Pageable pageableOf(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof Pageable) {
+                return (Pageable) arg;
+            }
+        }
+        return Pageable.unpaged();
+    }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * 현재 스레드에서 실행된 SQL 수와 그 중 count 쿼리 수를 셈 (누적값이므로 전후 차이로 사용)
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNTS = ThreadLocal.withInitial(() -> new long[2]);
+    private static final int STATEMENTS = 0;
+    private static final int COUNT_QUERIES = 1;
+
+    @Override
+    public String inspect(String sql) {
+        long[] counts = COUNTS.get();
+        counts[STATEMENTS]++;
+        if (isCountQuery(sql)) {
+            counts[COUNT_QUERIES]++;
+        }
+        return sql;
+    }
+
+    public long statements() {
+        return COUNTS.get()[STATEMENTS];
+    }
+
+    public long countQueries() {
+        return COUNTS.get()[COUNT_QUERIES];
+    }
+
+    static boolean isCountQuery(String sql) {
+        String body = SqlStatements.stripComment(sql);
+        return body.regionMatches(true, 0, "select count(", 0, "select count(".length());
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.support;
+
+/**
+ * StatementInspector들이 같이 쓰는 SQL 문자열 유틸
+ */
+public final class SqlStatements {
+
+    private SqlStatements() {
+    }
+
+    /**
+     * use_sql_comments를 켜면 SQL 앞에 주석이 붙으므로 떼어내고 본문만 반환
+     */
+    public static String stripComment(String sql) {
+        String trimmed = sql.trim();
+        if (trimmed.startsWith("/*")) {
+            int end = trimmed.indexOf("*/");
+            if (end > 0) {
+                return trimmed.substring(end + 2).trim();
+            }
+        }
+        return trimmed;
+    }
+}
@@ -0,0 +1,49 @@
+package study.querydsl.cache;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+public class MemberDataVersionTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberDataVersion memberDataVersion;
+
+    @Test
+    public void etagTest(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        String etag = memberDataVersion.etag("v2", MediaType.APPLICATION_JSON, condition, PageRequest.of(0, 10));
+
+        MemberSearchCondition same = new MemberSearchCondition();
+        same.setTeamName("teamA");
+        assertThat(memberDataVersion.etag("v2", MediaType.APPLICATION_JSON, same, PageRequest.of(0, 10))).isEqualTo(etag);
+        assertThat(memberDataVersion.etag("v2", MediaType.APPLICATION_JSON, same, PageRequest.of(1, 10))).isNotEqualTo(etag);
+
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.flush();   //insert가 나가면 버전이 올라감
+
+        String afterPersist = memberDataVersion.etag("v2", MediaType.APPLICATION_JSON, condition, PageRequest.of(0, 10));
+        assertThat(afterPersist).isNotEqualTo(etag);
+
+        new JPAQueryFactory(em).update(member).set(member.age, member.age.add(1)).execute();   //bulk도 마찬가지
+        assertThat(memberDataVersion.etag("v2", MediaType.APPLICATION_JSON, condition, PageRequest.of(0, 10)))
+                .isNotEqualTo(afterPersist);
+    }
+}
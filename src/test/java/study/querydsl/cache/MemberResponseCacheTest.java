@@ -0,0 +1,104 @@
+package study.querydsl.cache;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.MemberDataChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+public class MemberResponseCacheTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberResponseCache memberResponseCache;
+
+    AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    public void before(){
+        memberResponseCache.onDataChanged(new MemberDataChangedEvent("member"));  //다른 테스트가 남긴 응답 비움
+    }
+
+    @Test
+    public void hitTest(){
+        MemberSearchCondition condition = condition();
+        byte[] first = get(condition);
+        byte[] second = get(condition);
+
+        assertThat(loads.get()).isEqualTo(1);  //두번째는 loader(SQL + 직렬화)를 거치지 않음
+        assertThat(second).isSameAs(first);
+
+        get(condition, PageRequest.of(1, 10));  //페이지가 다르면 다른 응답
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidateTest(){
+        MemberSearchCondition condition = condition();
+        get(condition);
+
+        Team team = new Team("responseCacheTeam");
+        em.persist(team);
+        em.flush();  //team insert
+        get(condition);
+        assertThat(loads.get()).isEqualTo(2);
+
+        em.persist(new Member("responseCacheMember", 10, team));
+        em.flush();  //member insert
+        get(condition);
+        assertThat(loads.get()).isEqualTo(3);
+
+        get(condition);
+        assertThat(loads.get()).isEqualTo(3);
+        new JPAQueryFactory(em).update(member).set(member.age, member.age.add(1)).execute();  //bulk update
+        get(condition);
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void changedDuringLoadTest(){
+        MemberSearchCondition condition = condition();
+        memberResponseCache.get("test", MediaType.APPLICATION_JSON, condition, PageRequest.of(0, 10), () -> {
+            loads.incrementAndGet();
+            em.persist(new Member("responseCacheMember", 10));
+            em.flush();  //조회하는 사이에 데이터가 바뀜 → 이 결과는 캐시에 넣지 않음
+            return List.of("stale");
+        });
+
+        byte[] reloaded = get(condition);
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(new String(reloaded)).isEqualTo("[\"fresh\"]");
+    }
+
+    private byte[] get(MemberSearchCondition condition) {
+        return get(condition, PageRequest.of(0, 10));
+    }
+
+    private byte[] get(MemberSearchCondition condition, PageRequest pageable) {
+        return memberResponseCache.get("test", MediaType.APPLICATION_JSON, condition, pageable, () -> {
+            loads.incrementAndGet();
+            return List.of("fresh");
+        });
+    }
+
+    private static MemberSearchCondition condition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("responseCacheTeam");
+        return condition;
+    }
+}
@@ -0,0 +1,107 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 로컬 in-memory H2 두 개(primary / replica)에 각자 이름을 넣어두고 어디서 읽었는지 확인
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    DataSource primary = h2("routing-primary");
+    DataSource replica = h2("routing-replica");
+
+    @BeforeEach
+    public void before(){
+        for (Map.Entry<String, DataSource> entry : Map.of("primary", primary, "replica", replica).entrySet()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(entry.getValue());
+            jdbcTemplate.execute("create table if not exists node (name varchar(20))");
+            jdbcTemplate.update("delete from node");
+            jdbcTemplate.update("insert into node values (?)", entry.getKey());
+        }
+    }
+
+    @Test
+    public void routingTest(){
+        ReplicaPool replicaPool = replicaPool(replica);
+
+        assertThat(readNode(replicaPool, true)).isEqualTo("replica");
+        assertThat(readNode(replicaPool, false)).isEqualTo("primary");
+    }
+
+    @Test
+    public void writeThenReadTest(){
+        LazyConnectionDataSourceProxy dataSource = routingDataSource(replicaPool(replica));
+        TransactionTemplate write = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        TransactionTemplate read = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        read.setReadOnly(true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        //쓰기 트랜잭션 안에서 readOnly 메서드를 부르면 참여만 하므로 같은 primary 커넥션에서 방금 쓴 데이터를 읽음
+        List<String> nodes = write.execute(status -> {
+            jdbcTemplate.update("insert into node values (?)", "written");
+            return read.execute(inner -> jdbcTemplate.queryForList("select name from node", String.class));
+        });
+        assertThat(nodes).containsExactlyInAnyOrder("primary", "written");
+    }
+
+    @Test
+    public void fallbackTest(){
+        DataSource deadReplica = new DriverManagerDataSource("jdbc:h2:mem:routing-dead;IFEXISTS=TRUE", "sa", "");  //없는 db라 연결 실패
+        ReplicaPool replicaPool = replicaPool(deadReplica);
+
+        assertThat(readNode(replicaPool, true)).isEqualTo("primary");
+        assertThat(replicaPool.nextHealthy()).isEmpty();   //실패한 replica는 제외됨
+
+        replicaPool.checkReplicas();
+        assertThat(replicaPool.nextHealthy()).isEmpty();   //헬스 체크에서도 여전히 down
+    }
+
+    @Test
+    public void healthCheckRecoveryTest(){
+        ReplicaPool replicaPool = replicaPool(replica);
+        replicaPool.markDown("replica", null);
+        assertThat(readNode(replicaPool, true)).isEqualTo("primary");
+
+        replicaPool.checkReplicas();
+        assertThat(readNode(replicaPool, true)).isEqualTo("replica");
+    }
+
+    private String readNode(ReplicaPool replicaPool, boolean readOnly) {
+        LazyConnectionDataSourceProxy dataSource = routingDataSource(replicaPool);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("select name from node", String.class));
+    }
+
+    private LazyConnectionDataSourceProxy routingDataSource(ReplicaPool replicaPool) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replicaPool));
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return dataSource;
+    }
+
+    private static ReplicaPool replicaPool(DataSource replica) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica", replica);
+        return new ReplicaPool(replicas, 1);
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,168 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.support.ResponseMappers;
+
+import javax.persistence.EntityManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MemberControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberRepository memberRepository;
+    @Autowired @Qualifier("searchQueryExecutor") ThreadPoolTaskExecutor searchQueryExecutor;
+    @Autowired ResponseMappers responseMappers;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    Long teamId;
+
+    @BeforeEach
+    public void before(){  //비동기 엔드포인트는 다른 스레드(트랜잭션)에서 읽으므로 데이터를 커밋하고 끝나면 지움
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("controllerTeam");
+            em.persist(team);
+            em.persist(new Member("controllerMember1", 10, team));
+            em.persist(new Member("controllerMember2", 20, team));
+            teamId = team.getId();
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id = :teamId").setParameter("teamId", teamId).executeUpdate();
+            em.createQuery("delete from Team t where t.id = :teamId").setParameter("teamId", teamId).executeUpdate();
+        });
+    }
+
+    @Test
+    public void smileNegotiationTest() throws Exception {
+        //캐시되는 동기 엔드포인트
+        JsonNode v1 = smile(mockMvc.perform(get("/v1/members").param("teamName", "controllerTeam").accept(ResponseMappers.SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ResponseMappers.SMILE))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                .andReturn());
+        assertThat(v1.findValuesAsText("username")).containsExactlyInAnyOrder("controllerMember1", "controllerMember2");
+
+        //객체를 반환하는 엔드포인트는 메시지 컨버터가 고름
+        JsonNode v5 = smile(mockMvc.perform(get("/v5/members").param("teamName", "controllerTeam").accept(ResponseMappers.SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ResponseMappers.SMILE))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                .andReturn());
+        assertThat(v5.get("content").findValuesAsText("username")).containsExactlyInAnyOrder("controllerMember1", "controllerMember2");
+
+        MvcResult async = mockMvc.perform(get("/v1/members/async").param("teamName", "controllerTeam").accept(ResponseMappers.SMILE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        JsonNode v1Async = smile(mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ResponseMappers.SMILE))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                .andReturn());
+        assertThat(v1Async.findValuesAsText("username")).containsExactlyInAnyOrder("controllerMember1", "controllerMember2");
+
+        //Accept가 없거나 */*면 JSON
+        mockMvc.perform(get("/v5/members").param("teamName", "controllerTeam"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.content[*].username").value(containsInAnyOrder("controllerMember1", "controllerMember2")));
+        mockMvc.perform(get("/v4/members").param("teamName", "controllerTeam").accept(MediaType.ALL))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void notModifiedTest() throws Exception {
+        String etag = mockMvc.perform(get("/v2/members").param("teamName", "controllerTeam"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        mockMvc.perform(get("/v2/members").param("teamName", "controllerTeam").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get("/v2/members").param("teamName", "controllerTeam").param("page", "1")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());  //다른 페이지
+        mockMvc.perform(get("/v2/members").param("teamName", "controllerTeam").accept(ResponseMappers.SMILE)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());  //다른 포맷
+
+        transactionTemplate.executeWithoutResult(status ->
+                em.persist(new Member("controllerMember3", 30, em.find(Team.class, teamId))));
+        mockMvc.perform(get("/v2/members").param("teamName", "controllerTeam").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())  //데이터가 바뀌었으므로 다시 읽음
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    public void asyncOverloadedTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            try {
+                while (true) {  //실행 중 스레드 + 대기열이 다 찰 때까지
+                    searchQueryExecutor.execute(() -> await(release));
+                }
+            } catch (RejectedExecutionException full) {
+                //꽉 참
+            }
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername("overloadedMember");
+            assertThrows(RejectedExecutionException.class, () -> memberRepository.searchAsync(condition));
+
+            mockMvc.perform(get("/v1/members/async").param("username", "overloadedMember"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private JsonNode smile(MvcResult result) throws Exception {
+        return responseMappers.mapper(ResponseMappers.SMILE).readTree(result.getResponse().getContentAsByteArray());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,20 +1,34 @@
 package study.querydsl.repository;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberImportRecord;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.support.SqlStatementCounter;
 
 import javax.persistence.EntityManager;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.support.QueryCountAssertions.assertQueryCount;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -24,6 +38,13 @@ class MemberJpaRepositoryTest {
     EntityManager em;
 
     @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired SqlStatementCounter statementCounter;
+    @Autowired MemberSearchQueryCache searchQueryCache;
+    @Autowired TeamRepository teamRepository;
+    @Autowired QueryGuard queryGuard;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired TransactionTemplate transactionTemplate;
 
     @Test
     public void basicTest(){
@@ -76,4 +97,188 @@ class MemberJpaRepositoryTest {
         assertThat(result).extracting("username").containsExactly("member4");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void streamTest() {
+        Team team = new Team("streamTeam");
+        em.persist(team);
+        em.persist(new Member("member1", 10, team));
+        em.persist(new Member("member2", 20, team));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("streamTeam");
+        try (Stream<MemberTeamDto> stream = memberJpaRepository.streamMemberByWhereParam(condition, 1)) {
+            List<String> usernames = stream.map(MemberTeamDto::getUsername).collect(Collectors.toList());
+            assertThat(usernames).containsExactlyInAnyOrder("member1", "member2");
+        }
+    }
+
+    @Test
+    public void searchQueryCacheTest() {
+        Team team = new Team("shapeTeam");
+        em.persist(team);
+        em.persist(new Member("member1", 10, team));
+        em.persist(new Member("member2", 20, team));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("shapeTeam");
+        condition.setAgeGoe(15);
+        memberJpaRepository.searchByWhereParam(condition);
+        double hits = meterRegistry.counter("member.search.query.cache", "result", "hit").count();
+
+        condition.setAgeGoe(5);  //값만 바뀌고 모양은 같으므로 캐시된 JPQL을 씀
+        List<MemberTeamDto> result = memberJpaRepository.searchByWhereParam(condition);
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+        assertThat(meterRegistry.counter("member.search.query.cache", "result", "hit").count()).isEqualTo(hits + 1);
+
+        int shape = MemberSearchShape.of(condition);
+        searchQueryCache.jpql(shape);
+        searchQueryCache.sql(shape);
+        searchQueryCache.parameters(shape, condition);  //실행이 아니므로 hit로 세지 않음
+        assertThat(meterRegistry.counter("member.search.query.cache", "result", "hit").count()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    public void bulkImportTest() throws IOException {
+        Team existing = new Team("importTeamA");
+        Team duplicate = new Team("importTeamA");  //이름이 같은 팀이 둘
+        em.persist(existing);
+        em.persist(duplicate);
+
+        String csv = "username,age,teamName\n"
+                + "importMember1,10,importTeamA\n"
+                + "importMember2,20,importTeamB\n"
+                + "\n"
+                + "\"import, Member3\",30,importTeamB\n"  //따옴표 안의 쉼표
+                + "\"import \"\"Member4\"\"\",40,\n";    //"" → "
+        long imported;
+        try (Stream<MemberImportRecord> records = MemberImportRecord.fromCsv(new StringReader(csv), true)) {
+            imported = memberJpaRepository.bulkImport(records);
+        }
+        assertThat(imported).isEqualTo(4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("importTeamB");
+        assertThat(memberJpaRepository.searchByWhereParam(condition))
+                .extracting("username").containsExactlyInAnyOrder("importMember2", "import, Member3");
+        condition.setTeamName("importTeamA");
+        assertThat(memberJpaRepository.searchByWhereParam(condition))
+                .extracting("teamId").containsExactly(Math.min(existing.getId(), duplicate.getId()));  //기존 팀 중 먼저 만들어진 팀을 재사용
+        condition.setTeamName(null);
+        condition.setUsername("import \"Member4\"");
+        assertThat(memberJpaRepository.searchByWhereParam(condition)).extracting("teamId").containsOnlyNulls();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)  //청크마다 커밋되는지 확인
+    public void bulkImportChunkTest() throws IOException {
+        MemberJpaRepository chunked = new MemberJpaRepository(em, teamRepository, searchQueryCache,
+                queryGuard, transactionManager, 2, 256, 1000);
+        String csv = "chunkMember1,10\nchunkMember2,20\nchunkMember3,30\nchunkMember4,abc\n";
+        try {
+            try (Stream<MemberImportRecord> records = MemberImportRecord.fromCsv(new StringReader(csv), false)) {
+                assertThrows(IllegalArgumentException.class, () -> chunked.bulkImport(records));
+            }
+            assertThat(transactionTemplate.execute(status -> em.createQuery(
+                    "select m.username from Member m where m.username like 'chunkMember%'", String.class).getResultList()))
+                    .containsExactlyInAnyOrder("chunkMember1", "chunkMember2");  //첫 청크는 커밋, 실패한 청크는 적재되지 않음
+        } finally {
+            transactionTemplate.executeWithoutResult(status ->
+                    em.createQuery("delete from Member m where m.username like 'chunkMember%'").executeUpdate());
+        }
+    }
+
+    @Test
+    public void findByIdsTest() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Member member = new Member("lookupMember" + i, i);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+        Collections.reverse(ids);
+        ids.add(1, -1L);  //없는 id는 빠짐
+
+        List<Member> result = new ArrayList<>();
+        assertQueryCount(statementCounter, 2, () -> result.addAll(memberJpaRepository.findByIds(ids)));  //256 + 44(64로 패딩)
+
+        assertThat(result).hasSize(300);
+        assertThat(result.get(0).getUsername()).isEqualTo("lookupMember299");
+        assertThat(result.get(299).getUsername()).isEqualTo("lookupMember0");
+        assertThat(em.unwrap(Session.class).isReadOnly(result.get(0))).isTrue();  //findAll 계열과 같은 read-only 힌트
+        assertThat(memberJpaRepository.findByUsernames(List.of("lookupMember7", "lookupMember3")))
+                .extracting("username").containsExactly("lookupMember7", "lookupMember3");
+        assertThat(InListQueries.batches(List.of(1L, 2L, 3L), 256)).containsExactly(List.of(1L, 2L, 3L, 3L));
+    }
+
+    @Test
+    public void queryGuardTest() {
+        Team teamA = new Team("guardTeamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("guardMember" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+        //max-rows 3, 조건 없는 조회는 거절
+        MemberJpaRepository guarded = new MemberJpaRepository(em, teamRepository, searchQueryCache,
+                new QueryGuard(meterRegistry, 3, 5, "reject"), transactionManager, 1000, 256, 1000);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        double rejected = meterRegistry.counter("member.query.guard",
+                "method", "searchMemberByWhereParam", "shape", "none", "reason", QueryGuard.UNBOUNDED_REJECTED).count();
+        assertQueryCount(statementCounter, 0, () -> assertThrows(QueryLimitExceededException.class,
+                () -> guarded.searchMemberByWhereParam(condition)));  //SQL을 보내기 전에 거절
+        assertThat(meterRegistry.counter("member.query.guard",
+                "method", "searchMemberByWhereParam", "shape", "none", "reason", QueryGuard.UNBOUNDED_REJECTED).count())
+                .isEqualTo(rejected + 1);
+
+        condition.setTeamName("guardTeamA");
+        assertThrows(QueryLimitExceededException.class, () -> guarded.searchMemberByWhereParam(condition));  //5건 > 3건
+        assertThrows(QueryLimitExceededException.class, () -> guarded.searchByWhereParam(condition));
+        condition.setAgeLoe(2);
+        assertThat(guarded.searchMemberByWhereParam(condition)).hasSize(3);
+
+        //findAll은 unbounded=reject여도 거절하지 않고 max-rows까지만 읽음
+        assertThrows(QueryLimitExceededException.class, () -> guarded.findAll_Querydsl());  //5건 > 3건
+        MemberJpaRepository roomy = new MemberJpaRepository(em, teamRepository, searchQueryCache,
+                new QueryGuard(meterRegistry, 100, 5, "reject"), transactionManager, 1000, 256, 1000);
+        assertThat(roomy.findAll()).extracting("username").contains("guardMember0", "guardMember4");
+        assertThrows(QueryLimitExceededException.class, () -> roomy.searchByWhereParam(new MemberSearchCondition()));
+
+        MemberJpaRepository paginated = new MemberJpaRepository(em, teamRepository, searchQueryCache,
+                new QueryGuard(meterRegistry, 3, 5, "paginate"), transactionManager, 1000, 256, 1000);
+        assertThat(paginated.searchByWhereParam(new MemberSearchCondition())).hasSize(3);
+    }
+
+    @Test
+    public void readOnlyQueryTest() {
+        em.persist(new Member("readOnlyMember", 10));
+        em.flush();
+        em.clear();
+
+        List<Member> result = memberJpaRepository.findByUsername_Querydsl("readOnlyMember");
+        Member loaded = result.get(0);
+        assertThat(em.unwrap(Session.class).isReadOnly(loaded)).isTrue();  //스냅샷 없이 로딩됨
+
+        loaded.setAge(20);
+        assertQueryCount(statementCounter, 1, () -> memberJpaRepository.findByUsername("readOnlyMember"));  //auto flush 없이 select만
+        assertQueryCount(statementCounter, 0, () -> em.flush());  //read-only 엔티티는 dirty check 대상이 아님
+
+        em.persist(new Member("readOnlyMember", 30));
+        assertThat(memberJpaRepository.findByUsername("readOnlyMember")).hasSize(2);  //flush 안된 insert가 있으면 먼저 flush
+    }
+
+    @Test
+    public void readOnlyQueryDirtyEntityTest() {
+        Member member = new Member("dirtyMember", 10);
+        em.persist(member);
+        em.flush();
+
+        member.setUsername("dirtyMember2");  //쓰기 트랜잭션에서 바꾸고 flush 전에 조회
+        assertThat(memberJpaRepository.findByUsername("dirtyMember2")).containsExactly(member);
+        assertThat(memberJpaRepository.findByUsername("dirtyMember")).isEmpty();
+    }
+}
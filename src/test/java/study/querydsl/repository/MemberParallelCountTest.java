@@ -0,0 +1,120 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.cache.MemberCountCache;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 병렬 카운트는 다른 트랜잭션(다른 커넥션)에서 돌기 때문에 @Transactional 없이 데이터를 커밋하고 끝나면 지움
+ */
+@SpringBootTest
+public class MemberParallelCountTest {
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired MemberCountCache countCache;
+    @Autowired MemberSearchQueryCache searchQueryCache;
+    @Autowired QueryGuard queryGuard;
+    @Autowired MemberCountEstimator countEstimator;
+    @Autowired @Qualifier("countQueryExecutor") Executor countQueryExecutor;
+    @Autowired @Qualifier("searchQueryExecutor") Executor searchQueryExecutor;
+
+    Long teamId;
+
+    @BeforeEach
+    public void before(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("parallelTeam");
+            em.persist(team);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("parallelMember" + i, i, team));
+            }
+            teamId = team.getId();
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id = :teamId").setParameter("teamId", teamId).executeUpdate();
+            em.createQuery("delete from Team t where t.id = :teamId").setParameter("teamId", teamId).executeUpdate();
+        });
+    }
+
+    @Test
+    public void parallelCountTest(){
+        double parallel = counter(MemberRepositoryImpl.PARALLEL_COUNT_PARALLEL);
+
+        Page<MemberTeamDto> page = repository(countQueryExecutor).searchPageComplex(condition(), PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(counter(MemberRepositoryImpl.PARALLEL_COUNT_PARALLEL)).isEqualTo(parallel + 1);
+    }
+
+    @Test
+    public void lastPageSkipTest(){
+        double skipped = counter(MemberRepositoryImpl.PARALLEL_COUNT_SKIPPED);
+        double parallel = counter(MemberRepositoryImpl.PARALLEL_COUNT_PARALLEL);
+        MemberRepositoryImpl repository = repository(countQueryExecutor);
+
+        Page<MemberTeamDto> last = repository.searchPageComplex(condition(), PageRequest.of(2, 2));  //마지막 페이지: offset + 건수로 total
+        Page<MemberTeamDto> single = repository.searchPageComplex(condition(), PageRequest.of(0, 10));  //한 페이지에 다 들어감
+
+        assertThat(last.getContent()).hasSize(1);
+        assertThat(last.getTotalElements()).isEqualTo(5);
+        assertThat(single.getTotalElements()).isEqualTo(5);
+        assertThat(counter(MemberRepositoryImpl.PARALLEL_COUNT_SKIPPED)).isEqualTo(skipped + 2);
+        assertThat(counter(MemberRepositoryImpl.PARALLEL_COUNT_PARALLEL)).isEqualTo(parallel);  //카운트 결과를 기다리지 않음
+    }
+
+    @Test
+    public void rejectedFallbackTest(){
+        double rejected = counter(MemberRepositoryImpl.PARALLEL_COUNT_REJECTED);
+        Executor full = command -> {
+            throw new RejectedExecutionException("full");
+        };
+
+        Page<MemberTeamDto> page = repository(full).searchPageComplex(condition(), PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(5);  //컨텐츠 쿼리 다음에 순차로 셈
+        assertThat(counter(MemberRepositoryImpl.PARALLEL_COUNT_REJECTED)).isEqualTo(rejected + 1);
+    }
+
+    private MemberRepositoryImpl repository(Executor countExecutor) {
+        return new MemberRepositoryImpl(em, countCache, searchQueryCache, queryGuard, countExecutor, searchQueryExecutor,
+                meterRegistry, transactionManager, true, countEstimator, false, 10000, 500, 1000);
+    }
+
+    private static MemberSearchCondition condition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("parallelTeam");
+        return condition;
+    }
+
+    private double counter(String result) {
+        return meterRegistry.counter("member.search.parallel-count", "result", result).count();
+    }
+}
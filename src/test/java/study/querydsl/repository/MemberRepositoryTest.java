@@ -1,18 +1,50 @@
 package study.querydsl.repository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.cache.MemberCountCache;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.dto.MemberBulkResult;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.support.QueryBudgetExceededException;
+import study.querydsl.support.SqlStatementCounter;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.support.QueryCountAssertions.assertQueryCount;
 
 @SpringBootTest
 @Transactional
@@ -22,6 +54,17 @@ public class MemberRepositoryTest {
     EntityManager em;
 
     @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired SqlStatementCounter statementCounter;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired MemberCountCache countCache;
+    @Autowired MemberSearchQueryCache searchQueryCache;
+    @Autowired QueryGuard queryGuard;
+    @Autowired @Qualifier("countQueryExecutor") Executor countQueryExecutor;
+    @Autowired @Qualifier("searchQueryExecutor") ThreadPoolTaskExecutor searchQueryExecutor;
 
     @Test
     public void basicTest(){
@@ -36,6 +79,17 @@ public class MemberRepositoryTest {
         assertThat(result2).containsExactly(member);
     }
 
+    @Test
+    public void findByUsernameReadOnlyTest(){
+        memberRepository.save(new Member("readOnlyMember", 10));
+        em.flush();
+        em.clear();
+
+        List<Member> result = memberRepository.findByUsername("readOnlyMember");
+        assertThat(result).hasSize(1);
+        assertThat(em.unwrap(Session.class).isReadOnly(result.get(0))).isTrue();  //MemberJpaRepository.findByUsername과 같은 read-only 힌트
+    }
+
     @Test
     public void searchTest() {
         Team teamA = new Team("teamA");
@@ -57,4 +111,332 @@ public class MemberRepositoryTest {
         List<MemberTeamDto> result = memberRepository.search(condition);
         assertThat(result).extracting("username").containsExactly("member4");
     }
+
+    @Test
+    public void searchByCursorTest() {
+        Team team = new Team("cursorTeam");
+        em.persist(team);
+        em.persist(new Member("member1", 10, team));
+        em.persist(new Member("member2", 20, team));
+        em.persist(new Member("member3", 20, team));
+        em.persist(new Member("member4", 40, team));
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("cursorTeam");
+
+        MemberCursorPage first = memberRepository.searchByCursor(condition, null, 2);
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+        assertThat(first.isHasNext()).isTrue();
+
+        MemberCursorPage second = memberRepository.searchByCursor(condition, MemberCursor.decode(first.getNextCursor()), 2);
+        assertThat(second.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void countCacheInvalidationTest() {
+        Team team = new Team("countTeam");
+        em.persist(team);
+        em.persist(new Member("member1", 10, team));
+        em.persist(new Member("member2", 20, team));
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("countTeam");
+
+        Page<MemberTeamDto> before = memberRepository.searchPageSimple(condition, PageRequest.of(0, 1));
+        assertThat(before.getTotalElements()).isEqualTo(2);
+
+        em.persist(new Member("member3", 30, team));
+        em.flush();  //insert가 나가면 카운트 캐시가 비워져야 함
+
+        Page<MemberTeamDto> after = memberRepository.searchPageSimple(condition, PageRequest.of(0, 1));
+        assertThat(after.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    public void repositoryMetricsTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("metricTeam");
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+
+        Timer timer = meterRegistry.find("member.repository")
+                .tag("method", "searchPageSimple")
+                .tag("shape", "teamName")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.find("member.repository.statements").tag("method", "searchPageSimple").summary()).isNotNull();
+    }
+
+    @Test
+    public void asyncRepositoryMetricsTest() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("asyncMetricMember");
+        double before = asyncTimerCount();
+
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> blockers = new ArrayList<>();
+        for (int i = 0; i < searchQueryExecutor.getMaxPoolSize(); i++) {  //검색용 스레드를 모두 잡아둠 → 비동기 검색은 큐에서 대기
+            blockers.add(searchQueryExecutor.submit(() -> {
+                release.await();
+                return null;
+            }));
+        }
+        CompletableFuture<List<MemberTeamDto>> result;
+        try {
+            result = memberRepository.searchAsync(condition);
+            Thread.sleep(50);
+            assertThat(result).isNotDone();
+            assertThat(asyncTimerCount()).isEqualTo(before);  //제출했을 때는 기록하지 않음
+        } finally {
+            release.countDown();
+        }
+        for (Future<?> blocker : blockers) {
+            blocker.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEmpty();
+        assertThat(asyncTimerCount()).isEqualTo(before + 1);  //끝났을 때 한번
+        assertThat(meterRegistry.find("member.repository").tags("method", "searchAsync", "outcome", "success").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);  //executor 대기 시간 포함
+    }
+
+    private double asyncTimerCount() {
+        Timer timer = meterRegistry.find("member.repository").tags("method", "searchAsync", "outcome", "success").timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    @Test
+    public void queryCountTest() {
+        Team team = new Team("queryCountTeam");
+        em.persist(team);
+        em.persist(new Member("queryCountMember", 10, team));
+        em.persist(new Member("queryCountMember", 20, team));
+        em.flush();
+        em.clear();
+
+        List<Member> members = memberRepository.findByUsername("queryCountMember");
+        assertQueryCount(statementCounter, 1, () -> members.forEach(m -> m.getTeam().getName()));  //같은 팀이라 지연 로딩은 한번
+    }
+
+    @Test
+    public void lazyLoadBudgetTest() {
+        for (int i = 0; i < 6; i++) {  //테스트 설정의 repeated-threshold(5)를 넘김
+            Team team = new Team("nPlusOneTeam" + i);
+            em.persist(team);
+            em.persist(new Member("nPlusOneMember", i, team));
+        }
+        em.flush();
+        em.clear();
+
+        for (int i = 0; i < 6; i++) {  //같은 조회를 여러번 부르는 건 지연 로딩이 아니므로 위반이 아님
+            memberRepository.findByUsername("nPlusOneMember");
+        }
+
+        List<Member> members = memberRepository.findByUsername("nPlusOneMember");
+        assertThatThrownBy(() -> members.forEach(m -> m.getTeam().getName()))
+                .isInstanceOf(QueryBudgetExceededException.class);
+    }
+
+    @Test
+    public void bulkChunkTest() {
+        Team team = new Team("bulkTeam");
+        em.persist(team);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("bulkMember" + i, 10, team));
+        }
+        em.flush();
+        em.clear();
+        Member loaded = memberRepository.findByUsername("bulkMember0").get(0);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("bulkTeam");
+        List<MemberBulkResult> progress = new ArrayList<>();
+        MemberBulkResult updated = memberRepository.bulkAddAge(condition, 1, 3, progress::add);
+
+        assertThat(updated.getAffectedRows()).isEqualTo(10);
+        assertThat(progress).extracting("chunks").containsExactly(1, 2, 3, 4);  //3 + 3 + 3 + 1
+        assertThat(loaded.getAge()).isEqualTo(11);  //이미 로딩된 엔티티는 refresh됨
+
+        MemberBulkResult deleted = memberRepository.bulkDelete(condition, 4, null);
+
+        assertThat(deleted.getAffectedRows()).isEqualTo(10);
+        assertThat(em.contains(loaded)).isFalse();  //삭제된 엔티티는 detach됨
+        assertThat(memberRepository.search(condition)).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)  //비동기 검색은 다른 스레드(트랜잭션)에서 돌기 때문에 데이터를 커밋하고 끝나면 지움
+    public void searchAsyncTest() throws Exception {
+        Long teamId = transactionTemplate.execute(status -> {
+            Team team = new Team("asyncTeam");
+            em.persist(team);
+            for (int i = 0; i < 4; i++) {
+                em.persist(new Member("asyncMember" + i, 10 + i, team));
+            }
+            return team.getId();
+        });
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("asyncTeam");
+
+            CompletableFuture<Page<MemberTeamDto>> page = memberRepository.searchPageSimpleAsync(condition, PageRequest.of(0, 3));
+            CompletableFuture<List<MemberTeamDto>> list = memberRepository.searchAsync(condition);
+
+            assertThat(page.get(5, TimeUnit.SECONDS).getTotalElements()).isEqualTo(4);
+            assertThat(page.get().getContent()).hasSize(3);
+            assertThat(list.get(5, TimeUnit.SECONDS)).extracting("username")
+                    .containsExactlyInAnyOrder("asyncMember0", "asyncMember1", "asyncMember2", "asyncMember3");
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                em.createQuery("delete from Member m where m.team.id = :teamId").setParameter("teamId", teamId).executeUpdate();
+                em.createQuery("delete from Team t where t.id = :teamId").setParameter("teamId", teamId).executeUpdate();
+            });
+        }
+    }
+
+    @Test
+    public void searchSliceTest() {
+        Team team = new Team("sliceTeam");
+        em.persist(team);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("sliceMember" + i, i, team));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("sliceTeam");
+
+        long countQueriesBefore = statementCounter.countQueries();
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+
+        assertThat(first.getContent()).hasSize(3);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).hasSize(2);
+        assertThat(last.hasNext()).isFalse();
+        assertThat(statementCounter.countQueries()).isEqualTo(countQueriesBefore);  //카운트 쿼리 없음
+    }
+
+    @Test
+    public void countEstimatorTest() {
+        Team teamA = new Team("estimateTeamA");
+        Team teamB = new Team("estimateTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 200; i++) {
+            em.persist(new Member("estimateMember" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+
+        MemberCountEstimator estimator = new MemberCountEstimator(em, jdbcTemplate, 20, 4);  //표본 20건으로 추정
+
+        assertThat(estimator.estimate(team.name.eq("estimateTeamA"))).isBetween(50L, 150L);  //실제 100건
+    }
+
+    @Test
+    public void approximateCountTest() {
+        Team approxTeam = new Team("approxTeam");
+        em.persist(approxTeam);
+        for (int i = 0; i < 30; i++) {
+            em.persist(new Member("approxMember" + i, i, approxTeam));
+        }
+        em.flush();
+        em.clear();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("approxTeam");
+
+        Page<MemberTeamDto> exact = approximateRepository(50).searchPageComplex(condition, PageRequest.of(0, 10));  //30건 <= threshold
+        assertThat(exact).isInstanceOf(EstimatedPage.class);
+        assertThat(((EstimatedPage<MemberTeamDto>) exact).isTotalExact()).isTrue();
+        assertThat(exact.getTotalElements()).isEqualTo(30);
+
+        Page<MemberTeamDto> last = approximateRepository(20).searchPageComplex(condition, PageRequest.of(3, 8));  //마지막 페이지는 offset + 건수
+        assertThat(((EstimatedPage<MemberTeamDto>) last).isTotalExact()).isTrue();
+        assertThat(last.getTotalElements()).isEqualTo(30);
+
+        Page<MemberTeamDto> estimated = approximateRepository(20).searchPageComplex(condition, PageRequest.of(0, 10));  //30건 > threshold
+        assertThat(((EstimatedPage<MemberTeamDto>) estimated).isTotalExact()).isFalse();
+        assertThat(estimated.getTotalElements()).isGreaterThan(20);
+        assertThat(estimated.getContent()).hasSize(10);
+    }
+
+    private MemberRepositoryImpl approximateRepository(int exactCountThreshold) {
+        return new MemberRepositoryImpl(em, countCache, searchQueryCache, queryGuard, countQueryExecutor, searchQueryExecutor,
+                meterRegistry, transactionManager, false, new MemberCountEstimator(em, jdbcTemplate, 10, 2),
+                true, exactCountThreshold, 500, 1000);
+    }
+
+    @Test
+    public void searchColumnsTest() {
+        Team teamA = new Team("columnTeamA");
+        Team teamB = new Team("columnTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 40; i++) {
+            em.persist(new Member("columnMember" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(19);
+        List<MemberTeamDto> rows = memberRepository.search(condition);
+        MemberColumns columns = memberRepository.searchColumns(condition);
+
+        assertThat(columns.getSize()).isEqualTo(rows.size());
+        assertThat(columns.getTeamNames()).containsExactlyInAnyOrder("columnTeamA", "columnTeamB");  //팀 이름은 한번씩만
+        Map<Long, MemberTeamDto> byId = rows.stream().collect(Collectors.toMap(MemberTeamDto::getMemberId, row -> row));
+        for (int i = 0; i < columns.getSize(); i++) {
+            MemberTeamDto row = byId.get(columns.getMemberIds()[i]);
+            assertThat(columns.getAges()[i]).isEqualTo(row.getAge());
+            assertThat(columns.getTeamIds()[i]).isEqualTo(row.getTeamId());
+            assertThat(columns.teamName(i)).isEqualTo(row.getTeamName());
+        }
+
+        Member noTeam = new Member("columnMember40", 15);
+        em.persist(noTeam);  //flush 안된 팀 없는 회원도 보여야 함
+        MemberColumns unflushed = memberRepository.searchColumns(condition);
+        assertThat(unflushed.getSize()).isEqualTo(rows.size() + 1);
+        int index = Arrays.stream(unflushed.getMemberIds()).boxed().collect(Collectors.toList()).indexOf(noTeam.getId());
+        assertThat(unflushed.getTeamIds()[index]).isEqualTo(MemberColumns.NO_TEAM);
+        assertThat(unflushed.teamName(index)).isNull();
+    }
+
+    @Test
+    public void normalizedConditionTest() {
+        Team team = new Team("normalizeTeam");
+        em.persist(team);
+        em.persist(new Member("normalizeMember1", 10, team));
+        em.persist(new Member("normalizeMember2", 20, team));
+        em.persist(new Member("normalizeMember3", 30, team));
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition padded = new MemberSearchCondition();
+        padded.setUsername("  ");   //공백뿐이면 조건 없음
+        padded.setTeamName(" normalizeTeam ");
+        padded.setAgeGoe(20);
+        padded.setAgeLoe(20);   //age = 20
+        assertThat(memberRepository.search(padded)).extracting("username").containsExactly("normalizeMember2");
+        assertThat(memberJpaRepository.searchByBuilder(padded)).extracting("username").containsExactly("normalizeMember2");
+        assertThat(meterRegistry.find("member.repository").tags("method", "search", "shape", "teamName,ageEq").timer())
+                .isNotNull();   //username 없는 모양으로 기록됨
+        assertThat(padded.getTeamName()).isEqualTo(" normalizeTeam ");   //넘긴 조건 객체는 그대로
+
+        MemberSearchCondition contradiction = new MemberSearchCondition();
+        contradiction.setTeamName("normalizeTeam");
+        contradiction.setAgeGoe(30);
+        contradiction.setAgeLoe(10);
+        assertQueryCount(statementCounter, 0, () -> {   //결과가 있을 수 없으면 SQL 없이 빈 결과
+            Page<MemberTeamDto> page = memberRepository.searchPageComplex(contradiction, PageRequest.of(0, 10));
+            assertThat(page.getContent()).isEmpty();
+            assertThat(page.getTotalElements()).isZero();
+            assertThat(memberRepository.search(contradiction)).isEmpty();
+            assertThat(memberRepository.searchByCursor(contradiction, null, 10).getNextCursor()).isNull();
+            assertThat(memberJpaRepository.searchMemberByWhereParam(contradiction)).isEmpty();
+        });
+    }
 }
@@ -0,0 +1,69 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 쿼리 캐시는 커밋된 변경만 기준으로 하므로 @Transactional 없이 트랜잭션마다 커밋하고 끝나면 지움
+ */
+@SpringBootTest
+public class TeamRepositoryTest {
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired TeamRepository teamRepository;
+
+    Long teamId;
+
+    @AfterEach
+    public void after(){
+        transactionTemplate.executeWithoutResult(status ->
+                em.createQuery("delete from Team t where t.id = :teamId").setParameter("teamId", teamId).executeUpdate());
+    }
+
+    @Test
+    public void findByNameCacheTest(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team cacheTeam = new Team("cacheTeam");
+            em.persist(cacheTeam);
+            teamId = cacheTeam.getId();
+        });
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertThat(findByName("cacheTeam")).isEqualTo(teamId);  //처음엔 쿼리 캐시 miss → DB
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getQueryCachePutCount()).isEqualTo(1);
+
+        long entityHits = statistics.getSecondLevelCacheHitCount();
+        assertThat(findByName("cacheTeam")).isEqualTo(teamId);  //쿼리 캐시에서 id, 엔티티는 team 리전에서
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(entityHits);
+
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)  //bulk update는 엔티티 이벤트 없이 team 테이블을 바꿈
+                .update(team).set(team.name, "cacheTeam").where(team.id.eq(teamId)).execute());
+
+        assertThat(findByName("cacheTeam")).isEqualTo(teamId);  //team 테이블이 바뀌었으므로 캐시된 결과를 쓰지 않음
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(2);
+    }
+
+    private Long findByName(String name) {
+        return transactionTemplate.execute(status -> teamRepository.findByName(name).map(Team::getId).orElse(null));
+    }
+}
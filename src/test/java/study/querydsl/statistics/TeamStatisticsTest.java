@@ -0,0 +1,123 @@
+package study.querydsl.statistics;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 변경분은 커밋된 뒤에만 반영되므로 @Transactional 없이 트랜잭션마다 커밋하고 끝나면 지움
+ */
+@SpringBootTest
+public class TeamStatisticsTest {
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired TeamStatisticsStore teamStatisticsStore;
+
+    Long teamAId;
+    Long teamBId;
+
+    @AfterEach
+    public void after(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id in :teamIds")
+                    .setParameter("teamIds", List.of(teamAId, teamBId)).executeUpdate();
+            em.createQuery("delete from Team t where t.id in :teamIds")
+                    .setParameter("teamIds", List.of(teamAId, teamBId)).executeUpdate();
+        });
+    }
+
+    @Test
+    public void incrementalTest(){
+        saveTeams();
+        TeamStatisticsDto teamA = statistics(teamAId);
+        assertThat(teamA.getCount()).isEqualTo(2);
+        assertThat(teamA.getAgeSum()).isEqualTo(30);
+        assertThat(teamA.getAgeMin()).isEqualTo(10);
+        assertThat(teamA.getAgeMax()).isEqualTo(20);
+
+        transactionTemplate.executeWithoutResult(status -> {  //insert + changeTeam(update)
+            em.persist(new Member("statMember3", 35, em.find(Team.class, teamBId)));
+            em.createQuery("select m from Member m where m.username = 'statMember2'", Member.class).getSingleResult()
+                    .changeTeam(em.find(Team.class, teamBId));
+        });
+        assertThat(statistics(teamAId).getAgeMax()).isEqualTo(10);
+        TeamStatisticsDto teamB = statistics(teamBId);
+        assertThat(teamB.getCount()).isEqualTo(2);
+        assertThat(teamB.getAgeMin()).isEqualTo(20);
+        assertThat(teamB.getAgeHistogram()).containsEntry("20-29", 1L).containsEntry("30-39", 1L);
+
+        transactionTemplate.executeWithoutResult(status -> {  //롤백된 변경은 반영되지 않음
+            em.createQuery("select m from Member m where m.username = 'statMember3'", Member.class).getSingleResult().setAge(99);
+            em.flush();
+            status.setRollbackOnly();
+        });
+        assertThat(statistics(teamBId).getAgeMax()).isEqualTo(35);
+
+        transactionTemplate.executeWithoutResult(status -> em.remove(
+                em.createQuery("select m from Member m where m.username = 'statMember1'", Member.class).getSingleResult()));
+        assertThat(teamStatisticsStore.statistics()).noneMatch(team -> team.getTeamId().equals(teamAId));  //회원이 없는 팀은 빠짐
+    }
+
+    @Test
+    public void bulkUpdateStaleTest(){
+        saveTeams();
+        assertThat(statistics(teamAId).getAgeSum()).isEqualTo(30);
+
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)  //bulk update는 엔티티 이벤트가 없어 변경분을 모름
+                .update(member).set(member.age, member.age.add(1)).where(member.team.id.eq(teamAId)).execute());
+        assertThat(teamStatisticsStore.isStale()).isTrue();
+
+        TeamStatisticsDto teamA = statistics(teamAId);  //group by로 다시 집계
+        assertThat(teamA.getCount()).isEqualTo(2);
+        assertThat(teamA.getAgeSum()).isEqualTo(32);
+        assertThat(teamA.getAgeMin()).isEqualTo(11);
+        assertThat(teamStatisticsStore.isStale()).isFalse();
+    }
+
+    @Test
+    public void commitDuringRebuildTest(){
+        saveTeams();
+        teamStatisticsStore.markStale();
+
+        //커밋 중인 트랜잭션이 있는 동안 재집계 → 그 커밋이 스냅샷에 들어갔는지 모르므로 stale 유지, 변경분은 버림
+        teamStatisticsStore.beginCommit();
+        assertThat(statistics(teamAId).getCount()).isEqualTo(2);
+        teamStatisticsStore.endCommit(true, List.of(new TeamStatisticsStore.Delta(teamAId, 10, 1)));
+        assertThat(teamStatisticsStore.isStale()).isTrue();
+
+        assertThat(statistics(teamAId).getCount()).isEqualTo(2);  //이중 반영되지 않음
+        assertThat(teamStatisticsStore.isStale()).isFalse();
+    }
+
+    private void saveTeams() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("statTeamA");
+            Team teamB = new Team("statTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("statMember1", 10, teamA));
+            em.persist(new Member("statMember2", 20, teamA));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    private TeamStatisticsDto statistics(Long teamId) {
+        return teamStatisticsStore.statistics().stream()
+                .filter(team -> team.getTeamId().equals(teamId))
+                .findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,73 @@
+package study.querydsl.support;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchShape;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+public class IndexAdvisorTest {
+
+    //운영에서 자주 들어오는 모양: 이 모양이 full scan으로 바뀌면 테스트 실패
+    static final Set<Integer> HOT_SHAPES = Set.of(
+            MemberSearchShape.USERNAME,
+            MemberSearchShape.USERNAME | MemberSearchShape.TEAM_NAME,
+            MemberSearchShape.USERNAME | MemberSearchShape.AGE_GOE | MemberSearchShape.AGE_LOE,
+            MemberSearchShape.TEAM_NAME,
+            MemberSearchShape.TEAM_NAME | MemberSearchShape.AGE_GOE | MemberSearchShape.AGE_LOE,
+            MemberSearchShape.AGE_GOE | MemberSearchShape.AGE_LOE);
+
+    @Autowired EntityManager em;
+    @Autowired IndexAdvisor indexAdvisor;
+    @Autowired MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void hotShapeIndexTest(){
+        for (int shape : HOT_SHAPES) {
+            String plan = indexAdvisor.explain(shape);
+            assertThat(IndexAdvisor.scannedTables(plan)).as(MemberSearchShape.describe(shape) + "\n" + plan).isEmpty();
+        }
+    }
+
+    @Test
+    public void analyzeTest(){
+        MemberSearchCondition byUsername = new MemberSearchCondition();
+        byUsername.setUsername("member1");
+        memberRepository.search(byUsername);
+
+        MemberSearchCondition byAge = new MemberSearchCondition();
+        byAge.setAgeGoe(20);
+        byAge.setAgeLoe(40);
+        memberRepository.search(byAge);
+
+        List<IndexAdvisor.IndexAdvice> advices = indexAdvisor.analyze();
+
+        assertThat(advices).noneMatch(advice -> HOT_SHAPES.contains(advice.getShape()));
+        //나이 범위는 idx_member_age_id(age, member_id)가 age로 시작하므로 새로 제안할 인덱스가 없음
+        assertThat(advices).noneMatch(advice -> advice.getShape() == MemberSearchShape.of(byAge) && !advice.getMissing().isEmpty());
+    }
+}
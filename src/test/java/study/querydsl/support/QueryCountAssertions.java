@@ -0,0 +1,19 @@
+package study.querydsl.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 테스트에서 블록 안에서 나간 SQL 수를 정확히 검증할 때 사용
+ * (flush 되지 않은 변경이 있으면 insert/update도 같이 세어지므로 먼저 flush + clear 해둘 것)
+ */
+public final class QueryCountAssertions {
+
+    private QueryCountAssertions() {
+    }
+
+    public static void assertQueryCount(SqlStatementCounter counter, long expected, Runnable action) {
+        long before = counter.statements();
+        action.run();
+        assertThat(counter.statements() - before).as("실행된 SQL 수").isEqualTo(expected);
+    }
+}